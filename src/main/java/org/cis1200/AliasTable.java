@@ -0,0 +1,118 @@
+package org.cis1200;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable Walker/Vose alias table over {@code int} elements, such as the
+ * token IDs of an {@link IntProbabilityDistribution}. Sampling takes constant
+ * time regardless of how many distinct elements the distribution holds.
+ * <p>
+ * The table is built with exact integer arithmetic: every column has capacity
+ * {@code total}, and element {@code i} contributes {@code weight(i) * size}
+ * units spread over its own column and the columns that alias it. Each element
+ * is therefore sampled with probability exactly {@code weight / total}.
+ * <p>
+ * Alias tables are only useful for random sampling; deterministic replays
+ * should keep using {@link IntProbabilityDistribution#pick(int)}.
+ */
+class AliasTable {
+
+    // elements[i] is the element owning column i
+    private final int[] elements;
+    // alias[i] is the element returned when a draw overflows column i
+    private final int[] alias;
+    // INVARIANT: 0 <= threshold[i] <= total
+    private final int[] threshold;
+    private final int total;
+
+    /**
+     * Compiles the given weights into an alias table.
+     *
+     * @param elements - the distinct elements of the distribution
+     * @param weights  - weights[i] > 0 is the count of elements[i]
+     * @param total    - the sum of all weights
+     */
+    AliasTable(int[] elements, int[] weights, int total) {
+        int size = elements.length;
+        this.total = total;
+        this.elements = elements.clone();
+        this.alias = elements.clone();
+        this.threshold = new int[size];
+
+        long[] weight = new long[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            weight[i] = (long) weights[i] * size;
+            if (weight[i] < total) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            threshold[less] = (int) weight[less];
+            alias[less] = elements[more];
+            weight[more] -= total - weight[less];
+            if (weight[more] < total) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // whatever is left fills its own column exactly
+        while (largeCount > 0) {
+            threshold[large[--largeCount]] = total;
+        }
+        while (smallCount > 0) {
+            threshold[small[--smallCount]] = total;
+        }
+    }
+
+    /**
+     * @return the number of records in the distribution this table was
+     *         compiled from
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the estimated bytes retained by this table, see
+     *         {@link ChainStats}
+     */
+    long estimatedBytes() {
+        return ChainStats.objectBytes(16) + 3 * ChainStats.arrayBytes(elements.length, 4);
+    }
+
+    /**
+     * @return the number of distinct elements in the table
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Samples an element using two numbers from the generator: one to choose a
+     * column and one to choose between the column's owner and its alias.
+     *
+     * @param generator - the source of numbers for the draw
+     * @return the chosen element
+     * @throws NoSuchElementException if the table is empty
+     */
+    public int sample(NumberGenerator generator) {
+        if (total == 0) {
+            throw new NoSuchElementException("Cannot sample from an empty table.");
+        }
+        int column = generator.next(elements.length);
+        if (generator.next(total) < threshold[column]) {
+            return elements[column];
+        }
+        return alias[column];
+    }
+}
@@ -0,0 +1,201 @@
+package org.cis1200;
+
+/**
+ * A summary of the size of a {@link MarkovChain}, from
+ * {@link MarkovChain#getStats()}: how many tokens and bigrams it holds, how
+ * the number of successors per token is distributed, and roughly how many
+ * bytes of heap each part of it retains.
+ * <p>
+ * Byte counts are estimates for a 64-bit JVM with compressed object pointers
+ * (12-byte object headers, 16-byte array headers, 4-byte references, 8-byte
+ * alignment). They count the arrays and objects owned by each part, but not
+ * the JVM's own overhead, and they count each token String once, in the
+ * vocabulary.
+ */
+public class ChainStats {
+
+    private final int vocabularySize;
+    private final int startTokenCount;
+    private final int startTotal;
+    private final int rowCount;
+    private final int edgeCount;
+    private final long bigramTotal;
+    private final int maxOutDegree;
+    private final int[] outDegreeHistogram;
+    private final long vocabularyBytes;
+    private final long startTokensBytes;
+    private final long bigramFrequenciesBytes;
+    private final long frozenBytes;
+
+    ChainStats(
+            int vocabularySize, int startTokenCount, int startTotal, int rowCount,
+            int edgeCount, long bigramTotal, int maxOutDegree, int[] outDegreeHistogram,
+            long vocabularyBytes, long startTokensBytes, long bigramFrequenciesBytes,
+            long frozenBytes
+    ) {
+        this.vocabularySize = vocabularySize;
+        this.startTokenCount = startTokenCount;
+        this.startTotal = startTotal;
+        this.rowCount = rowCount;
+        this.edgeCount = edgeCount;
+        this.bigramTotal = bigramTotal;
+        this.maxOutDegree = maxOutDegree;
+        this.outDegreeHistogram = outDegreeHistogram;
+        this.vocabularyBytes = vocabularyBytes;
+        this.startTokensBytes = startTokensBytes;
+        this.bigramFrequenciesBytes = bigramFrequenciesBytes;
+        this.frozenBytes = frozenBytes;
+    }
+
+    /**
+     * @return the number of distinct tokens, including {@code END_TOKEN}
+     */
+    public int getVocabularySize() {
+        return vocabularySize;
+    }
+
+    /**
+     * @return the number of distinct tokens that start a sentence
+     */
+    public int getStartTokenCount() {
+        return startTokenCount;
+    }
+
+    /**
+     * @return the number of sentences recorded in {@code startTokens}
+     */
+    public int getStartTotal() {
+        return startTotal;
+    }
+
+    /**
+     * @return the number of tokens that are followed by something, i.e. the
+     *         number of keys of {@code bigramFrequencies}
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of distinct bigrams
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return the number of bigrams recorded, counting repeats
+     */
+    public long getBigramTotal() {
+        return bigramTotal;
+    }
+
+    /**
+     * @return the largest number of distinct successors of any token
+     */
+    public int getMaxOutDegree() {
+        return maxOutDegree;
+    }
+
+    /**
+     * Returns how many tokens have how many distinct successors: entry
+     * {@code i} counts the tokens with between {@code 2^i} and
+     * {@code 2^(i + 1) - 1} successors.
+     *
+     * @return a copy of the out-degree histogram
+     */
+    public int[] getOutDegreeHistogram() {
+        return outDegreeHistogram.clone();
+    }
+
+    /**
+     * @return the estimated bytes retained by the vocabulary, including the
+     *         token Strings
+     */
+    public long getVocabularyBytes() {
+        return vocabularyBytes;
+    }
+
+    /**
+     * @return the estimated bytes retained by {@code startTokens}
+     */
+    public long getStartTokensBytes() {
+        return startTokensBytes;
+    }
+
+    /**
+     * @return the estimated bytes retained by the distributions behind
+     *         {@code bigramFrequencies}
+     */
+    public long getBigramFrequenciesBytes() {
+        return bigramFrequenciesBytes;
+    }
+
+    /**
+     * @return the estimated bytes retained by the alias tables of a frozen
+     *         chain, or 0 if the chain is not frozen
+     */
+    public long getFrozenBytes() {
+        return frozenBytes;
+    }
+
+    /**
+     * @return the sum of the estimated bytes of every part
+     */
+    public long getTotalBytes() {
+        return vocabularyBytes + startTokensBytes + bigramFrequenciesBytes + frozenBytes;
+    }
+
+    /**
+     * @return the size of an object with the given bytes of fields, including
+     *         its header and alignment
+     */
+    static long objectBytes(int fieldBytes) {
+        return align(12L + fieldBytes);
+    }
+
+    /**
+     * @return the size of an array of length elements of elementBytes each
+     */
+    static long arrayBytes(int length, int elementBytes) {
+        return align(16L + (long) length * elementBytes);
+    }
+
+    /**
+     * @return the size of a String and its backing array, assuming compact
+     *         strings
+     */
+    static long stringBytes(String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) <= 0xFF;
+        }
+        return objectBytes(12) + arrayBytes(s.length(), latin1 ? 1 : 2);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder();
+        res.append("tokens: ").append(vocabularySize);
+        res.append(", start tokens: ").append(startTokenCount);
+        res.append(" (").append(startTotal).append(" sentences)");
+        res.append(", rows: ").append(rowCount);
+        res.append(", edges: ").append(edgeCount);
+        res.append(" (").append(bigramTotal).append(" bigrams)");
+        res.append(", max out-degree: ").append(maxOutDegree);
+        res.append("\nout-degree histogram:");
+        for (int i = 0; i < outDegreeHistogram.length; i++) {
+            res.append(' ').append(1 << i).append("+: ").append(outDegreeHistogram[i]);
+        }
+        res.append("\nestimated bytes: vocabulary ").append(vocabularyBytes);
+        res.append(", startTokens ").append(startTokensBytes);
+        res.append(", bigramFrequencies ").append(bigramFrequenciesBytes);
+        res.append(", frozen ").append(frozenBytes);
+        res.append(", total ").append(getTotalBytes());
+        return res.toString();
+    }
+}
@@ -0,0 +1,1129 @@
+package org.cis1200;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * A read-only {@link MarkovChain} compiled for generation. All transitions are
+ * held in compressed sparse row (CSR) layout: the successors of the token with
+ * ID {@code s} are {@code targets[offsets[s]]} up to (but excluding)
+ * {@code targets[offsets[s + 1]]}, in the same order in which
+ * {@code MarkovChain} picks them, and {@code cumulativeWeights[e]} is the sum
+ * of the counts of the edges of that row up to and including edge {@code e}.
+ * <p>
+ * A walk binary-searches one row of {@code cumulativeWeights} per step and
+ * never touches a map or allocates, so the whole model is a handful of arrays
+ * no matter how many tokens it has. For the same {@code NumberGenerator}, a
+ * walk yields exactly the same tokens as the chain it was compiled from.
+ * <p>
+ * The arrays are {@code IntBuffer}s. {@link MarkovChain#compileOffHeap()}
+ * allocates them as direct buffers, so that models with hundreds of millions
+ * of edges live outside of the Java heap and are never scanned or copied by
+ * the garbage collector.
+ * <p>
+ * A compiled chain can be saved as a binary snapshot with {@link #save} and
+ * read back with {@link #load}, which memory-maps the file: the arrays above
+ * become views of the mapped file, and each token is only decoded into a
+ * {@code String} the first time a walk yields it. The snapshot is made of
+ * big-endian ints, in this order:
+ *
+ * <pre>
+ * MAGIC, VERSION, tokenCount V, endId, startCount S, edgeCount E, wordBytes B
+ * wordOffsets[V + 1]     (byte offset of each token in the word data)
+ * startTargets[S], startCumulative[S]
+ * offsets[V + 1], targets[E], cumulativeWeights[E]
+ * </pre>
+ *
+ * followed by the B bytes of the UTF-8 encoded tokens.
+ */
+public class CompiledMarkovChain {
+
+    /** "MKCH", the first int of a snapshot */
+    static final int MAGIC = 0x4D4B4348;
+    /** the snapshot format version written by save */
+    static final int VERSION = 1;
+    // the number of ints before wordOffsets in a snapshot
+    private static final int HEADER_INTS = 7;
+
+    // words[id] is the token with that ID, or null if it has not been decoded
+    // from wordData yet
+    private final String[] words;
+    // the UTF-8 bytes of token id are wordData[wordOffsets[id]] up to
+    // wordData[wordOffsets[id + 1]]; both are null if words is complete
+    private final ByteBuffer wordData;
+    private final IntBuffer wordOffsets;
+    // ID of MarkovChain.END_TOKEN
+    private final int endId;
+
+    // start tokens in pick order, with their cumulative counts
+    private final IntBuffer startTargets;
+    private final IntBuffer startCumulative;
+
+    // INVARIANT: offsets.limit() == words.length + 1, offsets is non-decreasing
+    private final IntBuffer offsets;
+    // INVARIANT: within each row, and in startTargets, the targets are in
+    // the natural order of their tokens
+    private final IntBuffer targets;
+    // INVARIANT: strictly increasing within each row
+    private final IntBuffer cumulativeWeights;
+
+    // maps each token to its ID for get(), built on first use
+    private volatile Vocabulary index;
+
+    // the cost of each token, the least total cost of a walk from each token
+    // to END_TOKEN, and the largest such cost among the successors of each
+    // token, in tokens and in characters; computed on first use
+    private volatile int[][] tokenBounds;
+    private volatile int[][] charBounds;
+
+    // lookup tables for scoring, built on first use
+    private volatile Scorer scorer;
+
+    /** natural logarithms of small counts */
+    private static final double[] LOG = new double[1 << 12];
+
+    static {
+        for (int i = 0; i < LOG.length; i++) {
+            LOG[i] = Math.log(i);
+        }
+    }
+
+    /**
+     * Compiles a trained chain. Use {@link MarkovChain#compile()} or
+     * {@link MarkovChain#compileOffHeap()}.
+     *
+     * @param mc     - the chain to compile
+     * @param direct - whether to keep the transitions in direct buffers,
+     *               outside of the Java heap
+     */
+    CompiledMarkovChain(MarkovChain mc, boolean direct) {
+        Vocabulary vocabulary = mc.vocabulary;
+        int size = vocabulary.size();
+        this.endId = mc.endId;
+        this.words = new String[size];
+        this.wordData = null;
+        this.wordOffsets = null;
+        long edgeTotal = 0;
+        for (int id = 0; id < size; id++) {
+            words[id] = vocabulary.word(id);
+            IntProbabilityDistribution row = mc.row(id);
+            edgeTotal += row == null ? 0 : row.size();
+        }
+        if (edgeTotal > Integer.MAX_VALUE / Integer.BYTES) {
+            throw new IllegalStateException("Chain has too many edges to compile.");
+        }
+        int edges = (int) edgeTotal;
+
+        this.offsets = allocate(size + 1, direct);
+        this.targets = allocate(edges, direct);
+        this.cumulativeWeights = allocate(edges, direct);
+        int e = 0;
+        for (int id = 0; id < size; id++) {
+            offsets.put(id, e);
+            IntProbabilityDistribution row = mc.row(id);
+            int sum = 0;
+            for (int position = 0; row != null && position < row.size(); position++) {
+                sum += row.countAt(position);
+                targets.put(e, row.keyAt(position));
+                cumulativeWeights.put(e, sum);
+                e++;
+            }
+        }
+        offsets.put(size, e);
+
+        Map<String, Integer> starts = mc.startTokens.getRecords();
+        this.startTargets = allocate(starts.size(), direct);
+        this.startCumulative = allocate(starts.size(), direct);
+        int i = 0;
+        int sum = 0;
+        for (Map.Entry<String, Integer> start : starts.entrySet()) {
+            sum += start.getValue();
+            startTargets.put(i, vocabulary.id(start.getKey()));
+            startCumulative.put(i, sum);
+            i++;
+        }
+    }
+
+    /**
+     * @return a buffer of length ints, on the heap or in native memory
+     */
+    private static IntBuffer allocate(int length, boolean direct) {
+        if (!direct) {
+            return IntBuffer.allocate(length);
+        }
+        return ByteBuffer.allocateDirect(length * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Maps the arrays of a snapshot whose header has already been checked by
+     * {@link #load}. Each array is mapped on its own, so only a single array,
+     * not the whole snapshot, has to fit in one mapping.
+     *
+     * @param channel - the snapshot file
+     * @param header  - the HEADER_INTS ints at the start of the snapshot
+     */
+    private CompiledMarkovChain(FileChannel channel, int[] header) throws IOException {
+        int size = header[2];
+        int startCount = header[4];
+        int edges = header[5];
+        this.endId = header[3];
+        this.words = new String[size];
+
+        long position = HEADER_INTS * Integer.BYTES;
+        this.wordOffsets = mapInts(channel, position, size + 1);
+        position += (size + 1) * (long) Integer.BYTES;
+        this.startTargets = mapInts(channel, position, startCount);
+        position += startCount * (long) Integer.BYTES;
+        this.startCumulative = mapInts(channel, position, startCount);
+        position += startCount * (long) Integer.BYTES;
+        this.offsets = mapInts(channel, position, size + 1);
+        position += (size + 1) * (long) Integer.BYTES;
+        this.targets = mapInts(channel, position, edges);
+        position += edges * (long) Integer.BYTES;
+        this.cumulativeWeights = mapInts(channel, position, edges);
+        position += edges * (long) Integer.BYTES;
+        this.wordData = channel.map(FileChannel.MapMode.READ_ONLY, position, header[6]);
+    }
+
+    /**
+     * @return a read-only mapping of count ints of channel, starting at byte
+     *         position
+     */
+    private static IntBuffer mapInts(FileChannel channel, long position, int count)
+            throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, count * (long) Integer.BYTES)
+                .asIntBuffer();
+    }
+
+    /**
+     * @return the token with the given ID, decoding it from the snapshot if
+     *         this is the first time it is needed
+     */
+    private String word(int id) {
+        String word = words[id];
+        if (word == null) {
+            int from = wordOffsets.get(id);
+            byte[] bytes = new byte[wordOffsets.get(id + 1) - from];
+            wordData.get(from, bytes);
+            word = new String(bytes, StandardCharsets.UTF_8);
+            words[id] = word;
+        }
+        return word;
+    }
+
+    /**
+     * Writes this chain to a binary snapshot file, replacing any previous
+     * contents. See the class comment for the format.
+     * <p>
+     * The snapshot is streamed to the file through a small buffer, so saving
+     * needs no second copy of the model on the heap. Only the lengths of the
+     * encoded tokens are kept while writing; a chain that was loaded from a
+     * snapshot copies its word data without decoding it.
+     *
+     * @param filePath - the file to write
+     * @throws IllegalArgumentException if filePath is null
+     * @throws IllegalStateException    if the encoded tokens take more than
+     *                                  2^31 - 1 bytes
+     */
+    public void save(String filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        int size = words.length;
+        // wordEnds[id] is the end of token id in the word data
+        int[] wordEnds = new int[size];
+        long wordBytes = 0;
+        for (int id = 0; id < size; id++) {
+            wordBytes += wordData != null ? wordOffsets.get(id + 1) - wordOffsets.get(id)
+                    : words[id].getBytes(StandardCharsets.UTF_8).length;
+            if (wordBytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Chain has too many token bytes for a snapshot.");
+            }
+            wordEnds[id] = (int) wordBytes;
+        }
+
+        try (FileChannel channel = FileChannel.open(
+                Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            SnapshotWriter out = new SnapshotWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(size);
+            out.putInt(endId);
+            out.putInt(startTargets.limit());
+            out.putInt(targets.limit());
+            out.putInt((int) wordBytes);
+            out.putInt(0);
+            for (int wordEnd : wordEnds) {
+                out.putInt(wordEnd);
+            }
+            out.putInts(startTargets);
+            out.putInts(startCumulative);
+            out.putInts(offsets);
+            out.putInts(targets);
+            out.putInts(cumulativeWeights);
+            if (wordData != null) {
+                out.put(wordData.duplicate().clear());
+            } else {
+                for (String word : words) {
+                    out.put(ByteBuffer.wrap(word.getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the big-endian ints and bytes of a snapshot to a channel in
+     * chunks, through a buffer that is reused for the whole snapshot.
+     */
+    private static final class SnapshotWriter {
+        private static final int BUFFER_BYTES = 1 << 16;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void putInts(IntBuffer source) throws IOException {
+            for (int i = 0; i < source.limit(); i++) {
+                putInt(source.get(i));
+            }
+        }
+
+        /**
+         * Writes the remaining bytes of source, consuming them.
+         */
+        void put(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(buffer.remaining(), source.remaining());
+                buffer.put(source.slice(source.position(), n));
+                source.position(source.position() + n);
+            }
+        }
+
+        /**
+         * Writes everything buffered so far to the channel.
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Loads a snapshot written by {@link #save}. The file is memory-mapped
+     * rather than read into the heap: loading makes one pass over the mapped
+     * arrays to check that every offset and token ID is in range, so that a
+     * corrupt file is rejected here rather than in the middle of a walk, and
+     * the chain then uses them in place. The file must not be modified while
+     * the chain is in use.
+     *
+     * @param filePath - the snapshot file to load
+     * @return the chain stored in the snapshot
+     * @throws IllegalArgumentException if filePath is null, if the file
+     *                                  doesn't exist, or if it is not a
+     *                                  consistent snapshot of a supported
+     *                                  version
+     */
+    public static CompiledMarkovChain load(String filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path) || Files.isDirectory(path)) {
+            throw new IllegalArgumentException("File does not exist or is a directory");
+        }
+        CompiledMarkovChain chain;
+        // the mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_INTS * Integer.BYTES);
+            int read = 0;
+            while (headerBytes.hasRemaining() && read >= 0) {
+                read = channel.read(headerBytes);
+            }
+            if (headerBytes.hasRemaining()) {
+                throw new IllegalArgumentException("File is not a Markov chain snapshot");
+            }
+            int[] header = new int[HEADER_INTS];
+            headerBytes.flip().asIntBuffer().get(header);
+            if (header[0] != MAGIC) {
+                throw new IllegalArgumentException("File is not a Markov chain snapshot");
+            }
+            if (header[1] != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + header[1]);
+            }
+            int size = header[2];
+            int maxInts = Integer.MAX_VALUE / Integer.BYTES;
+            long expected = (long) Integer.BYTES
+                    * (HEADER_INTS + 2L * (size + 1) + 2L * header[4] + 2L * header[5])
+                    + header[6];
+            if (size < 1 || size >= maxInts || header[3] < 0 || header[3] >= size
+                    || header[4] < 0 || header[4] > maxInts || header[5] < 0
+                    || header[5] > maxInts || header[6] < 0 || expected != channel.size()) {
+                throw new IllegalArgumentException("Snapshot is truncated or corrupt");
+            }
+            chain = new CompiledMarkovChain(channel, header);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to map snapshot: " + e.getMessage(), e);
+        }
+        chain.checkSnapshot();
+        return chain;
+    }
+
+    /**
+     * Checks the arrays of a loaded snapshot: both offset arrays must run
+     * from 0 to the end of the data they index without decreasing, every
+     * token ID must be below the number of tokens, and the cumulative counts
+     * of every row must be positive and strictly increasing.
+     *
+     * @throws IllegalArgumentException if any of them does not hold
+     */
+    private void checkSnapshot() {
+        int size = words.length;
+        checkOffsets(wordOffsets, wordData.limit());
+        checkOffsets(offsets, targets.limit());
+        checkRow(startTargets, startCumulative, 0, startTargets.limit(), size);
+        for (int id = 0; id < size; id++) {
+            checkRow(targets, cumulativeWeights, offsets.get(id), offsets.get(id + 1), size);
+        }
+    }
+
+    private static void checkOffsets(IntBuffer offsets, int end) {
+        int previous = 0;
+        for (int i = 0; i < offsets.limit(); i++) {
+            int offset = offsets.get(i);
+            if (offset < previous || i == 0 && offset != 0) {
+                throw new IllegalArgumentException("Snapshot has invalid offsets");
+            }
+            previous = offset;
+        }
+        if (previous != end) {
+            throw new IllegalArgumentException("Snapshot has invalid offsets");
+        }
+    }
+
+    private static void checkRow(
+            IntBuffer targets, IntBuffer cumulative, int from, int to, int size
+    ) {
+        int previous = 0;
+        for (int e = from; e < to; e++) {
+            int target = targets.get(e);
+            if (target < 0 || target >= size) {
+                throw new IllegalArgumentException("Snapshot has an invalid token ID " + target);
+            }
+            if (cumulative.get(e) <= previous) {
+                throw new IllegalArgumentException("Snapshot has invalid counts");
+            }
+            previous = cumulative.get(e);
+        }
+    }
+
+    /**
+     * @return the number of distinct tokens in the chain, including
+     *         {@code END_TOKEN}
+     */
+    public int tokenCount() {
+        return words.length;
+    }
+
+    /**
+     * @return the number of distinct bigrams in the chain
+     */
+    public int edgeCount() {
+        return targets.limit();
+    }
+
+    /**
+     * @return the sum of the counts of the edges in [from, to), which must
+     *         all belong to the same row
+     */
+    private static int total(IntBuffer cumulative, int from, int to) {
+        return from == to ? 0 : cumulative.get(to - 1);
+    }
+
+    /**
+     * Finds the edge chosen by a pick index, exactly like
+     * {@link IntProbabilityDistribution#pick(int)}.
+     *
+     * @return the first edge e in [from, to) with cumulative[e] > index
+     */
+    private static int search(IntBuffer cumulative, int from, int to, int index) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative.get(mid) > index) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param id - the ID of a token, as written by {@link #generateWalks}
+     * @return the token with that ID
+     * @throws IllegalArgumentException if there is no token with that ID
+     */
+    public String token(int id) {
+        if (id < 0 || id >= words.length) {
+            throw new IllegalArgumentException("No token with ID " + id);
+        }
+        return word(id);
+    }
+
+    /**
+     * @return a vocabulary that gives every token its ID in this chain
+     */
+    private Vocabulary index() {
+        Vocabulary vocabulary = index;
+        if (vocabulary == null) {
+            vocabulary = new Vocabulary();
+            for (int id = 0; id < words.length; id++) {
+                vocabulary.intern(word(id));
+            }
+            index = vocabulary;
+        }
+        return vocabulary;
+    }
+
+    /**
+     * @return the ID of a token, or -1 if it is not in the chain
+     */
+    private int id(String token) {
+        return index().id(token);
+    }
+
+    /**
+     * Returns a copy of the distribution of tokens following a token, like
+     * {@link MarkovChain#get}.
+     *
+     * @param token - the token for which the ProbabilityDistribution is sought
+     * @return a ProbabilityDistribution, or null if token is never followed
+     *         by anything
+     * @throws IllegalArgumentException when token is null
+     */
+    ProbabilityDistribution<String> get(String token) {
+        if (token == null) {
+            throw new IllegalArgumentException("token cannot be null.");
+        }
+        int id = id(token);
+        if (id < 0 || offsets.get(id) == offsets.get(id + 1)) {
+            return null;
+        }
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        int previous = 0;
+        for (int e = offsets.get(id); e < offsets.get(id + 1); e++) {
+            pd.record(word(targets.get(e)), cumulativeWeights.get(e) - previous);
+            previous = cumulativeWeights.get(e);
+        }
+        return pd;
+    }
+
+    /**
+     * @return the natural logarithm of a positive count
+     */
+    private static double log(int count) {
+        return count < LOG.length ? LOG[count] : Math.log(count);
+    }
+
+    /**
+     * Everything needed to find a bigram by binary search of its row: the
+     * rank of each token in the natural order of the tokens, which is the
+     * order of the targets of every row, and the logarithm of the total of
+     * each row. Both have one entry per token; the edges are searched where
+     * they are, so scoring a chain kept off the heap adds nothing
+     * proportional to its edges to the heap. Start tokens are the row of the
+     * pseudo-token {@code words.length}.
+     */
+    private static final class Scorer {
+        // rank[id] is the position of token id in the natural order
+        final int[] rank;
+        // logRowTotal[s] is the log of the total count of row s
+        final double[] logRowTotal;
+
+        Scorer(int rows) {
+            rank = new int[rows];
+            logRowTotal = new double[rows + 1];
+        }
+    }
+
+    /**
+     * @return the scoring tables, building them if this is the first use
+     */
+    private Scorer scorer() {
+        Scorer result = scorer;
+        if (result == null) {
+            int size = words.length;
+            result = new Scorer(size);
+            int[] sorted = index().sortedIds();
+            for (int i = 0; i < size; i++) {
+                result.rank[sorted[i]] = i;
+            }
+            for (int s = 0; s < size; s++) {
+                int rowTotal = total(cumulativeWeights, offsets.get(s), offsets.get(s + 1));
+                result.logRowTotal[s] = rowTotal == 0 ? 0 : log(rowTotal);
+            }
+            int startTotal = total(startCumulative, 0, startCumulative.limit());
+            result.logRowTotal[size] = startTotal == 0 ? 0 : log(startTotal);
+            scorer = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the log probability of the bigram (source, target), or
+     *         negative infinity if it was never seen
+     */
+    private double logProbability(Scorer table, int source, int target) {
+        if (target < 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        boolean start = source == words.length;
+        IntBuffer ids = start ? startTargets : targets;
+        IntBuffer cumulative = start ? startCumulative : cumulativeWeights;
+        int from = start ? 0 : offsets.get(source);
+        int to = start ? startTargets.limit() : offsets.get(source + 1);
+        // binary search for target among the targets of the row, by rank
+        int rank = table.rank[target];
+        int lo = from;
+        int hi = to - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Integer.compare(table.rank[ids.get(mid)], rank);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                int count = cumulative.get(mid) - (mid == from ? 0 : cumulative.get(mid - 1));
+                return log(count) - table.logRowTotal[source];
+            }
+        }
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Computes the natural logarithm of the probability that a random walk
+     * through this chain yields exactly the given sentence: the probability
+     * of its first token as a start token, times that of each following
+     * token after the one before it, times that of {@code END_TOKEN} after
+     * its last token. Each factor is a binary search of one row and a
+     * subtraction of precomputed logarithms.
+     *
+     * @param sentence - the tokens of the sentence
+     * @return the log probability of sentence, or negative infinity if the
+     *         chain can never produce it
+     * @throws IllegalArgumentException if sentence is null or empty
+     */
+    public double logProbability(List<String> sentence) {
+        if (sentence == null || sentence.isEmpty()) {
+            throw new IllegalArgumentException("Invalid empty or null words");
+        }
+        Scorer table = scorer();
+        Vocabulary vocabulary = index;
+        double sum = 0;
+        int previous = words.length;
+        for (String token : sentence) {
+            int id = token == null ? -1 : vocabulary.id(token);
+            sum += logProbability(table, previous, id);
+            if (sum == Double.NEGATIVE_INFINITY) {
+                return sum;
+            }
+            previous = id;
+        }
+        return sum + logProbability(table, previous, endId);
+    }
+
+    /**
+     * Computes {@link #logProbability} of each of a batch of sentences, in
+     * parallel on the common fork-join pool.
+     *
+     * @param sentences - the sentences to score
+     * @return the log probability of each sentence, in order
+     * @throws IllegalArgumentException if sentences is null or has a null or
+     *                                  empty sentence
+     */
+    public double[] logProbabilities(List<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("Sentences cannot be null.");
+        }
+        scorer();
+        List<? extends List<String>> batch = sentences instanceof RandomAccess ? sentences
+                : new ArrayList<>(sentences);
+        return IntStream.range(0, batch.size()).parallel()
+                .mapToDouble(i -> logProbability(batch.get(i)))
+                .toArray();
+    }
+
+    /**
+     * Computes the perplexity of this chain on a corpus: e raised to the
+     * negated average log probability per predicted token, where a sentence
+     * of n tokens makes n + 1 predictions (the last being
+     * {@code END_TOKEN}). Lower is better; it is infinite if some sentence
+     * can never be produced.
+     *
+     * @param sentences - the corpus to evaluate the chain on
+     * @return the perplexity of the chain on sentences
+     * @throws IllegalArgumentException if sentences is null or empty, or has
+     *                                  a null or empty sentence
+     */
+    public double perplexity(List<? extends List<String>> sentences) {
+        if (sentences == null || sentences.isEmpty()) {
+            throw new IllegalArgumentException("Sentences cannot be null or empty.");
+        }
+        double[] logs = logProbabilities(sentences);
+        double sum = 0;
+        long predictions = 0;
+        int i = 0;
+        for (List<String> sentence : sentences) {
+            sum += logs[i++];
+            predictions += sentence.size() + 1;
+        }
+        return Math.exp(-sum / predictions);
+    }
+
+    /**
+     * Picks the first token of a walk.
+     *
+     * @return the ID of the first token, or -1 if the walk is empty
+     */
+    private int firstToken(NumberGenerator ng) {
+        int startTotal = total(startCumulative, 0, startCumulative.limit());
+        if (startTotal > 0) {
+            int index = ng.next(startTotal);
+            if (index >= 0 && index < startTotal) {
+                int start = startTargets.get(search(
+                        startCumulative, 0, startCumulative.limit(), index
+                ));
+                if (start != endId && offsets.get(start) < offsets.get(start + 1)) {
+                    return start;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Picks the token that follows another one in a walk.
+     *
+     * @return the ID of the next token, or -1 if the walk ends here
+     * @throws NoSuchElementException if ng gives an index out of range
+     */
+    private int nextToken(int token, NumberGenerator ng) {
+        int from = offsets.get(token);
+        int to = offsets.get(token + 1);
+        int rowTotal = total(cumulativeWeights, from, to);
+        if (rowTotal == 0) {
+            return -1;
+        }
+        int nextIndex = ng.next(rowTotal);
+        if (nextIndex < 0 || nextIndex >= rowTotal) {
+            throw new NoSuchElementException("Invalid number generator index.");
+        }
+        int next = targets.get(search(cumulativeWeights, from, to, nextIndex));
+        return next == endId ? -1 : next;
+    }
+
+    /**
+     * Generates up to {@code count} walks, one after the other, as token IDs.
+     * Walk {@code i} is written to {@code tokens[offsets[i]]} up to (but
+     * excluding) {@code tokens[offsets[i + 1]]}, and {@code offsets[0]} is 0.
+     * Each walk follows the path given by {@code ng} exactly as
+     * {@link #getWalk} would, but nothing is allocated: IDs can be turned
+     * into text later with {@link #token}, and only for the walks that are
+     * needed.
+     * <p>
+     * Generation stops early if the next walk does not fit in the rest of
+     * {@code tokens}. That walk is not counted, although the numbers it
+     * consumed from {@code ng} are gone.
+     *
+     * @param ng      - the paths to follow
+     * @param count   - the number of walks to generate
+     * @param tokens  - receives the token IDs of all walks
+     * @param offsets - receives the start of each walk in tokens, and the end
+     *                of the last one; must have room for count + 1 entries
+     * @return the number of walks generated
+     * @throws IllegalArgumentException if an argument is null, count is
+     *                                  negative or offsets is too short
+     * @throws NoSuchElementException   if ng gives an index out of range
+     */
+    public int generateWalks(NumberGenerator ng, int count, int[] tokens, int[] offsets) {
+        if (ng == null || tokens == null || offsets == null) {
+            throw new IllegalArgumentException("Arguments cannot be null.");
+        }
+        if (count < 0 || offsets.length <= count) {
+            throw new IllegalArgumentException("offsets must have room for count + 1 entries.");
+        }
+        int length = 0;
+        offsets[0] = 0;
+        for (int walk = 0; walk < count; walk++) {
+            int end = length;
+            for (int token = firstToken(ng); token >= 0; token = nextToken(token, ng)) {
+                if (end == tokens.length) {
+                    return walk;
+                }
+                tokens[end++] = token;
+            }
+            length = end;
+            offsets[walk + 1] = length;
+        }
+        return count;
+    }
+
+    /**
+     * Gets a walk through the chain that follows the path given by the
+     * {@code NumberGenerator}, with the same contract as
+     * {@link MarkovChain#getWalk}.
+     *
+     * @param ng the path to follow
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getWalk(NumberGenerator ng) {
+        return new CompiledChainIterator(ng);
+    }
+
+    /**
+     * Gets a random walk through the chain.
+     *
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getRandomWalk() {
+        return getWalk(new RandomNumberGenerator());
+    }
+
+    /**
+     * Computes, for every token, the least total cost of the tokens of a walk
+     * from that token (included) to {@code END_TOKEN}, by running Dijkstra's
+     * algorithm backwards from {@code END_TOKEN} over the reversed edges.
+     * Tokens from which no walk ends get {@code Integer.MAX_VALUE}.
+     *
+     * @param cost - the positive cost of each token
+     * @return the least remaining cost of each token
+     */
+    private int[] minRemaining(int[] cost) {
+        int size = words.length;
+        // reversed CSR: the sources of the edges into t are
+        // sources[inOffsets[t]] up to sources[inOffsets[t + 1]]
+        int[] inOffsets = new int[size + 1];
+        for (int e = 0; e < targets.limit(); e++) {
+            inOffsets[targets.get(e) + 1]++;
+        }
+        for (int t = 0; t < size; t++) {
+            inOffsets[t + 1] += inOffsets[t];
+        }
+        int[] sources = new int[targets.limit()];
+        int[] next = Arrays.copyOf(inOffsets, size);
+        for (int s = 0; s < size; s++) {
+            for (int e = offsets.get(s); e < offsets.get(s + 1); e++) {
+                sources[next[targets.get(e)]++] = s;
+            }
+        }
+
+        int[] remaining = new int[size];
+        Arrays.fill(remaining, Integer.MAX_VALUE);
+        remaining[endId] = 0;
+        // entries are (remaining cost << 32 | token), so the cheapest is first
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add((long) endId);
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int t = (int) entry;
+            if ((int) (entry >>> 32) != remaining[t]) {
+                continue;
+            }
+            for (int i = inOffsets[t]; i < inOffsets[t + 1]; i++) {
+                int s = sources[i];
+                long candidate = (long) remaining[t] + cost[s];
+                if (candidate < remaining[s]) {
+                    remaining[s] = (int) candidate;
+                    queue.add(candidate << 32 | s);
+                }
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * @param remaining - the least remaining cost of each token
+     * @return for each token, the largest remaining cost among its
+     *         successors, and last, the largest among the start tokens;
+     *         {@code END_TOKEN} costs nothing
+     */
+    private int[] rowMaxRemaining(int[] remaining) {
+        int size = words.length;
+        int[] rowMax = new int[size + 1];
+        for (int s = 0; s < size; s++) {
+            rowMax[s] = maxRemaining(remaining, targets, offsets.get(s), offsets.get(s + 1));
+        }
+        rowMax[size] = maxRemaining(remaining, startTargets, 0, startTargets.limit());
+        return rowMax;
+    }
+
+    private static int maxRemaining(int[] remaining, IntBuffer ids, int from, int to) {
+        int max = 0;
+        for (int e = from; e < to; e++) {
+            max = Math.max(max, remaining[ids.get(e)]);
+        }
+        return max;
+    }
+
+    /**
+     * @return { cost, minRemaining(cost), rowMaxRemaining } where every
+     *         token costs 1
+     */
+    private int[][] tokenBounds() {
+        int[][] bounds = tokenBounds;
+        if (bounds == null) {
+            int[] cost = new int[words.length];
+            Arrays.fill(cost, 1);
+            int[] remaining = minRemaining(cost);
+            bounds = new int[][] { cost, remaining, rowMaxRemaining(remaining) };
+            tokenBounds = bounds;
+        }
+        return bounds;
+    }
+
+    /**
+     * @return { cost, minRemaining(cost), rowMaxRemaining } where every
+     *         token costs its length plus one for the space after it
+     */
+    private int[][] charBounds() {
+        int[][] bounds = charBounds;
+        if (bounds == null) {
+            int[] cost = new int[words.length];
+            for (int id = 0; id < cost.length; id++) {
+                cost[id] = word(id).length() + 1;
+            }
+            int[] remaining = minRemaining(cost);
+            bounds = new int[][] { cost, remaining, rowMaxRemaining(remaining) };
+            charBounds = bounds;
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the least number of tokens of a walk that starts with token,
+     *         or {@code Integer.MAX_VALUE} if no walk from it ends
+     * @throws IllegalArgumentException if there is no token with that ID
+     */
+    public int minTokensToEnd(int token) {
+        if (token < 0 || token >= words.length) {
+            throw new IllegalArgumentException("No token with ID " + token);
+        }
+        return tokenBounds()[1][token];
+    }
+
+    /**
+     * Gets a walk of at most {@code maxTokens} tokens. At each step, only
+     * the successors from which the walk can still end in time are
+     * considered, with probabilities proportional to their counts; so the
+     * walk is produced in a single pass, with no retries. A step from a token
+     * whose successors all fit is a binary search, like a step of
+     * {@link #getWalk}; only steps close to the budget scan the successors
+     * to leave out those that do not fit. Numbers are drawn
+     * from {@code ng} as for {@link #getWalk}, but out of the total count of
+     * those successors only. The walk is empty if no sentence is short
+     * enough.
+     *
+     * @param ng        the path to follow
+     * @param maxTokens the largest number of tokens the walk may have
+     * @return an {@code Iterator} that yields the tokens on that path
+     * @throws IllegalArgumentException if ng is null or maxTokens is negative
+     */
+    public Iterator<String> getWalkWithinTokens(NumberGenerator ng, int maxTokens) {
+        if (ng == null || maxTokens < 0) {
+            throw new IllegalArgumentException("Invalid generator or token budget.");
+        }
+        return new BoundedChainIterator(ng, tokenBounds(), maxTokens);
+    }
+
+    /**
+     * Gets a walk whose tokens, joined by single spaces, take at most
+     * {@code maxChars} characters, in the same way as
+     * {@link #getWalkWithinTokens}. Since {@link TwitterBot} leaves out the
+     * spaces around punctuation, a rendered tweet may be shorter still.
+     *
+     * @param ng       the path to follow
+     * @param maxChars the largest number of characters of the walk
+     * @return an {@code Iterator} that yields the tokens on that path
+     * @throws IllegalArgumentException if ng is null or maxChars is negative
+     */
+    public Iterator<String> getWalkWithinChars(NumberGenerator ng, int maxChars) {
+        if (ng == null || maxChars < 0) {
+            throw new IllegalArgumentException("Invalid generator or character budget.");
+        }
+        // every token is charged for a space after it, including the last
+        int budget = maxChars == Integer.MAX_VALUE ? maxChars : maxChars + 1;
+        return new BoundedChainIterator(ng, charBounds(), budget);
+    }
+
+    class BoundedChainIterator implements Iterator<String> {
+        private final NumberGenerator ng;
+        private final int[] cost;
+        private final int[] remaining;
+        private final int[] rowMax;
+        // what is left of the budget before currentToken is paid for
+        private int budget;
+        // -1 once the walk is finished
+        private int currentToken = -1;
+
+        BoundedChainIterator(NumberGenerator ng, int[][] bounds, int budget) {
+            this.ng = ng;
+            this.cost = bounds[0];
+            this.remaining = bounds[1];
+            this.rowMax = bounds[2];
+            this.budget = budget;
+            int n = startTargets.limit();
+            int row = words.length;
+            int allowed = allowedTotal(row, startTargets, startCumulative, 0, n);
+            if (allowed > 0) {
+                int index = ng.next(allowed);
+                if (index >= 0 && index < allowed) {
+                    int start = startTargets.get(
+                            allowedPick(row, startTargets, startCumulative, 0, n, index)
+                    );
+                    if (start != endId) {
+                        currentToken = start;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return whether a walk that continues with token fits in budget
+         */
+        private boolean fits(int token) {
+            return token == endId || remaining[token] <= budget;
+        }
+
+        /**
+         * @param row - the token whose successors are [from, to), or
+         *            words.length for the start tokens
+         * @return the total count of the edges in [from, to) whose target fits
+         */
+        private int allowedTotal(int row, IntBuffer ids, IntBuffer cumulative, int from, int to) {
+            if (rowMax[row] <= budget) {
+                return total(cumulative, from, to);
+            }
+            int allowed = 0;
+            for (int e = from; e < to; e++) {
+                if (fits(ids.get(e))) {
+                    allowed += cumulative.get(e) - (e == from ? 0 : cumulative.get(e - 1));
+                }
+            }
+            return allowed;
+        }
+
+        /**
+         * @return the edge chosen by index among the edges in [from, to)
+         *         whose target fits
+         */
+        private int allowedPick(
+                int row, IntBuffer ids, IntBuffer cumulative, int from, int to, int index
+        ) {
+            if (rowMax[row] <= budget) {
+                return search(cumulative, from, to, index);
+            }
+            for (int e = from;; e++) {
+                if (fits(ids.get(e))) {
+                    index -= cumulative.get(e) - (e == from ? 0 : cumulative.get(e - 1));
+                    if (index < 0) {
+                        return e;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentToken >= 0;
+        }
+
+        @Override
+        public String next() {
+            if (currentToken < 0) {
+                throw new NoSuchElementException("End of chain reached.");
+            }
+            String result = word(currentToken);
+            budget -= cost[currentToken];
+            int from = offsets.get(currentToken);
+            int to = offsets.get(currentToken + 1);
+            int allowed = allowedTotal(currentToken, targets, cumulativeWeights, from, to);
+            if (allowed == 0) {
+                currentToken = -1;
+            } else {
+                int nextIndex = ng.next(allowed);
+                if (nextIndex < 0 || nextIndex >= allowed) {
+                    throw new NoSuchElementException("Invalid number generator index.");
+                }
+                int nextToken = targets.get(
+                        allowedPick(currentToken, targets, cumulativeWeights, from, to, nextIndex)
+                );
+                currentToken = nextToken == endId ? -1 : nextToken;
+            }
+            return result;
+        }
+    }
+
+    class CompiledChainIterator implements Iterator<String> {
+        private final NumberGenerator ng;
+        // -1 once the walk is finished
+        private int currentToken;
+
+        CompiledChainIterator(NumberGenerator ng) {
+            this.ng = ng;
+            this.currentToken = firstToken(ng);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentToken >= 0;
+        }
+
+        @Override
+        public String next() {
+            if (currentToken < 0) {
+                throw new NoSuchElementException("End of chain reached.");
+            }
+            String result = word(currentToken);
+            currentToken = nextToken(currentToken, ng);
+            return result;
+        }
+    }
+}
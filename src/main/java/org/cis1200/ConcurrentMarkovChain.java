@@ -0,0 +1,222 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Markov chain that any number of threads can train at the same time.
+ * <p>
+ * The transition table is split into stripes by source token ID, each with
+ * its own lock, and a bigram only locks the stripe of its first token; so
+ * threads recording bigrams of different tokens rarely contend, unlike a
+ * {@link MarkovChain} behind one global lock. Each stripe keeps the rows of
+ * its tokens as {@link IntProbabilityDistribution}s, and the start counts of
+ * its tokens. Known tokens are looked up without locking; only new tokens
+ * take a short global lock to get an ID.
+ * <p>
+ * To generate, take a {@link #snapshot()}, which copies the counts into an
+ * ordinary {@code MarkovChain}.
+ */
+public class ConcurrentMarkovChain {
+
+    static final int DEFAULT_STRIPES = 64;
+
+    // ids of known tokens; new tokens are added under the lock of words
+    private final ConcurrentHashMap<String, Integer> ids;
+    // words.get(id) is the token with that ID; guarded by itself
+    private final List<String> words;
+    private final int endId;
+
+    // the row of token id is stripes[id & mask].rows.get(id >>> shift)
+    private final Stripe[] stripes;
+    private final int mask;
+    private final int shift;
+
+    /**
+     * The rows and start counts of the tokens whose IDs fall in one stripe.
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        // guarded by lock
+        final ArrayList<IntProbabilityDistribution> rows = new ArrayList<>();
+        final IntProbabilityDistribution starts = new IntProbabilityDistribution();
+    }
+
+    /**
+     * Construct an empty chain with the default number of stripes.
+     */
+    public ConcurrentMarkovChain() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Construct an empty chain whose transition table is split into (at
+     * least) the given number of independently locked stripes.
+     *
+     * @param stripes - the number of stripes, rounded up to a power of two
+     * @throws IllegalArgumentException if stripes is not between 1 and 2^16
+     */
+    public ConcurrentMarkovChain(int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("stripes must be between 1 and 65536.");
+        }
+        this.shift = 32 - Integer.numberOfLeadingZeros(stripes - 1);
+        this.mask = (1 << shift) - 1;
+        this.stripes = new Stripe[1 << shift];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.ids = new ConcurrentHashMap<>();
+        this.words = new ArrayList<>();
+        this.endId = intern(MarkovChain.END_TOKEN);
+    }
+
+    /**
+     * @return the number of stripes
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * @return the ID of token, giving it the next ID if it is new
+     * @throws IllegalArgumentException if token is null
+     */
+    private int intern(String token) {
+        if (token == null) {
+            throw new IllegalArgumentException("Cannot intern a null token.");
+        }
+        Integer id = ids.get(token);
+        if (id != null) {
+            return id;
+        }
+        synchronized (words) {
+            id = ids.get(token);
+            if (id == null) {
+                id = words.size();
+                words.add(token);
+                ids.put(token, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Records count occurrences of a bigram, locking only the stripe of first.
+     */
+    private void addBigram(int first, int second, int count) {
+        Stripe stripe = stripes[first & mask];
+        int row = first >>> shift;
+        stripe.lock.lock();
+        try {
+            while (stripe.rows.size() <= row) {
+                stripe.rows.add(null);
+            }
+            IntProbabilityDistribution pd = stripe.rows.get(row);
+            if (pd == null) {
+                pd = new IntProbabilityDistribution();
+                stripe.rows.set(row, pd);
+            }
+            pd.record(second, count);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Records a bigram. Safe to call from any number of threads.
+     *
+     * @param first  The first word of the Bigram (should not be null)
+     * @param second The second word of the Bigram (should not be null)
+     * @throws IllegalArgumentException - when either parameter is null
+     */
+    public void addBigram(String first, String second) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException(
+                    "Neither the first nor second parameters can be null."
+            );
+        }
+        addBigram(intern(first), intern(second), 1);
+    }
+
+    /**
+     * Adds a single tweet's training data to the chain, exactly like
+     * {@link MarkovChain#addSequence}. Safe to call from any number of
+     * threads; the bigrams of concurrent tweets are interleaved, but every
+     * one of them is counted.
+     *
+     * @param tweet an iterator representing one tweet of training data
+     * @throws IllegalArgumentException when the tweet Iterator is null
+     */
+    public void addSequence(Iterator<String> tweet) {
+        if (tweet == null) {
+            throw new IllegalArgumentException("Tweet iterator cannot be null.");
+        }
+        if (!tweet.hasNext()) {
+            return;
+        }
+        int prevToken = intern(tweet.next());
+        if (prevToken == endId) {
+            return;
+        }
+        Stripe stripe = stripes[prevToken & mask];
+        stripe.lock.lock();
+        try {
+            stripe.starts.record(prevToken);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        while (tweet.hasNext()) {
+            int nextToken = intern(tweet.next());
+            addBigram(prevToken, nextToken, 1);
+            prevToken = nextToken;
+        }
+        addBigram(prevToken, endId, 1);
+    }
+
+    /**
+     * Copies the counts recorded so far into a new {@code MarkovChain}. All
+     * stripes are locked while they are copied, so every bigram is either
+     * fully in the snapshot or not at all; a tweet that is being added at
+     * the same time may be partially included.
+     *
+     * @return a chain with the same counts as this one
+     */
+    public MarkovChain snapshot() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            Vocabulary vocabulary = new Vocabulary();
+            synchronized (words) {
+                for (String word : words) {
+                    vocabulary.intern(word);
+                }
+            }
+            MarkovChain mc = new MarkovChain(vocabulary);
+            for (int s = 0; s < stripes.length; s++) {
+                Stripe stripe = stripes[s];
+                for (int i = 0; i < stripe.starts.size(); i++) {
+                    mc.startTokens.record(
+                            vocabulary.word(stripe.starts.keyAt(i)), stripe.starts.countAt(i)
+                    );
+                }
+                for (int row = 0; row < stripe.rows.size(); row++) {
+                    IntProbabilityDistribution pd = stripe.rows.get(row);
+                    for (int i = 0; pd != null && i < pd.size(); i++) {
+                        mc.addBigram((row << shift) | s, pd.keyAt(i), pd.countAt(i));
+                    }
+                }
+            }
+            return mc;
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.cis1200;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams one column out of CSV data, reading the records of a
+ * {@code BufferedReader} one at a time.
+ * <p>
+ * Records follow RFC 4180: fields are separated by commas and records by
+ * line breaks ({@code \r\n}, {@code \n} or {@code \r}). A field that starts
+ * with a double quote may contain commas, line breaks and escaped quotes
+ * ({@code ""}) up to its closing quote; anything between the closing quote
+ * and the next separator is kept as is. Quotes that do not start a field are
+ * ordinary characters.
+ * <p>
+ * Only the requested column is copied into a String; the other fields are
+ * scanned past without being stored. Records that have fewer columns are
+ * skipped. Records are read only when {@link #hasNext()} or {@link #next()}
+ * needs them. Like {@link LineIterator}, an {@code IOException} ends the
+ * iteration, and the reader is closed once it is exhausted.
+ */
+public class CsvColumnIterator implements Iterator<String> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private BufferedReader reader;
+    private final int column;
+
+    // buffer[position..limit) holds characters read but not yet scanned
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    // the field of the requested column of the last record read
+    private final StringBuilder field = new StringBuilder();
+    // whether a record was read that has not been handed out yet, and
+    // whether it has the requested column
+    private boolean ready = false;
+    private boolean found = false;
+
+    /**
+     * Constructs an iterator over one column of the CSV data in reader.
+     *
+     * @param reader - the CSV data
+     * @param column - the zero-indexed column to yield from each record
+     * @throws IllegalArgumentException if reader is null or column is negative
+     */
+    public CsvColumnIterator(BufferedReader reader, int column) {
+        if (reader == null) {
+            throw new IllegalArgumentException("BufferedReader cannot be null");
+        }
+        if (column < 0) {
+            throw new IllegalArgumentException("Column cannot be negative");
+        }
+        this.reader = reader;
+        this.column = column;
+    }
+
+    /**
+     * Unless that was already done, reads records until one has the requested
+     * column, or the input ends.
+     *
+     * @return whether field holds the requested column of a record
+     */
+    private boolean fill() {
+        if (!ready) {
+            found = false;
+            while (!found && reader != null) {
+                found = readRecord();
+            }
+            ready = true;
+        }
+        return found;
+    }
+
+    /**
+     * @return the next character of the input, or -1 at the end of the input
+     */
+    private int read() {
+        if (position == limit) {
+            if (reader == null) {
+                return -1;
+            }
+            try {
+                limit = reader.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                limit = -1;
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                close();
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * @return the next character of the input without consuming it, or -1 at
+     *         the end of the input
+     */
+    private int peek() {
+        int c = read();
+        if (c >= 0) {
+            position--;
+        }
+        return c;
+    }
+
+    /**
+     * Closes the reader, ending the iteration, for callers that stop before
+     * the input is exhausted. Does nothing if the reader is already closed.
+     */
+    void close() {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.err.println("Error closing BufferedReader: " + e.getMessage());
+        }
+        reader = null;
+    }
+
+    /**
+     * Reads one record, keeping the field of the requested column in field.
+     *
+     * @return whether the record has the requested column; false if the
+     *         input has ended
+     */
+    private boolean readRecord() {
+        field.setLength(0);
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        int index = 0;
+        while (true) {
+            c = readField(c, index == column);
+            if (c != ',') {
+                break;
+            }
+            index++;
+            c = read();
+        }
+        // a \r\n line break is a single separator
+        if (c == '\r' && peek() == '\n') {
+            position++;
+        }
+        return index >= column;
+    }
+
+    /**
+     * Reads the field that starts with c, appending it to field if keep.
+     *
+     * @return the character after the field: a comma, a line break, or -1
+     */
+    private int readField(int c, boolean keep) {
+        if (c == '"') {
+            while (true) {
+                c = read();
+                if (c < 0) {
+                    // an unterminated quote runs to the end of the input
+                    return c;
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        break;
+                    }
+                }
+                if (keep) {
+                    field.append((char) c);
+                }
+            }
+        }
+        while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+            if (keep) {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        return c;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return fill();
+    }
+
+    /**
+     * @return the requested column of the next record that has it
+     * @throws NoSuchElementException if there are no more records
+     */
+    @Override
+    public String next() {
+        if (!fill()) {
+            throw new NoSuchElementException("No more records to read");
+        }
+        ready = false;
+        return field.toString();
+    }
+
+    /**
+     * Like {@link #next()}, but returns the field in a buffer that is reused
+     * for the next record instead of creating a String.
+     *
+     * @return the requested column of the next record that has it, valid
+     *         until the next call to any method of this iterator, or null if
+     *         there are no more records
+     */
+    CharSequence nextSequence() {
+        if (!fill()) {
+            return null;
+        }
+        ready = false;
+        return field;
+    }
+}
@@ -0,0 +1,92 @@
+package org.cis1200;
+
+import java.util.Arrays;
+
+/**
+ * A batch of walks through a {@link MarkovChain}, each stored as the choices
+ * a {@link NumberGenerator} has to make for {@link MarkovChain#getWalk} to
+ * yield it. Produced by {@link MarkovChain#encodeWalks} and turned back into
+ * sentences by {@link MarkovChain#decodeWalks}.
+ * <p>
+ * All choices are kept in one flat array: the choices of walk {@code i} are
+ * {@code choices[offsets[i]]} up to (but excluding)
+ * {@code choices[offsets[i + 1]]}. A sentence of n words takes n + 1
+ * choices, the last one being the choice of {@code END_TOKEN}.
+ */
+public class EncodedWalks {
+
+    // INVARIANT: offsets[0] == 0, offsets is non-decreasing and its last
+    // entry is choices.length
+    private final int[] choices;
+    private final int[] offsets;
+
+    /**
+     * @param choices - the choices of all walks, one after the other
+     * @param offsets - the start of each walk in choices, then the end of the
+     *                last one
+     * @throws IllegalArgumentException if the arrays are null or offsets does
+     *                                  not split choices into walks
+     */
+    public EncodedWalks(int[] choices, int[] offsets) {
+        if (choices == null || offsets == null || offsets.length == 0) {
+            throw new IllegalArgumentException("choices and offsets cannot be null or empty.");
+        }
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != choices.length) {
+            throw new IllegalArgumentException("offsets must span all of choices.");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException("offsets must be non-decreasing.");
+            }
+        }
+        this.choices = choices;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @return the number of walks
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return the total number of choices of all walks
+     */
+    public int choiceCount() {
+        return choices.length;
+    }
+
+    /**
+     * @param walk - the index of a walk
+     * @return a copy of the choices of that walk
+     * @throws IndexOutOfBoundsException if there is no such walk
+     */
+    public int[] getChoices(int walk) {
+        return Arrays.copyOfRange(choices, offsets[walk], offsets[walk + 1]);
+    }
+
+    /**
+     * @param walk - the index of a walk
+     * @return the position of the first choice of that walk
+     */
+    int start(int walk) {
+        return offsets[walk];
+    }
+
+    /**
+     * @param walk - the index of a walk
+     * @return the position after the last choice of that walk
+     */
+    int end(int walk) {
+        return offsets[walk + 1];
+    }
+
+    /**
+     * @param position - a position in the flat array of choices
+     * @return the choice at that position
+     */
+    int choice(int position) {
+        return choices[position];
+    }
+}
@@ -0,0 +1,301 @@
+package org.cis1200;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Trains a {@link MarkovChain} from CSV tweet data with reading, parsing and
+ * training running at the same time.
+ * <p>
+ * The sequential path ({@link TweetParser#csvDataToTrainingData} followed by
+ * {@link MarkovChain#MarkovChain(List)}) reads every tweet, then parses every
+ * tweet, then counts every sentence. Here the three phases are stages
+ * connected by bounded queues:
+ * <ol>
+ * <li>a reader thread streams the tweet column with a
+ * {@link CsvColumnIterator} and hands out batches of tweets;</li>
+ * <li>a pool of parse workers splits each batch into sentences with
+ * {@link TweetTokenizer};</li>
+ * <li>the calling thread counts the sentences into the chain.</li>
+ * </ol>
+ * A stage that gets ahead blocks when the queue after it is full, so at most
+ * {@code 2 * queueCapacity} batches are in memory at once, however large the
+ * input. The counts are the same as on the sequential path, but since
+ * batches can be parsed out of order, tokens may be interned in a different
+ * order. Each run records an {@link IngestionStats} with the busy and
+ * waiting time of each stage and the depth of each queue.
+ */
+public class IngestionPipeline {
+
+    static final int DEFAULT_QUEUE_CAPACITY = 64;
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    // put on a queue once per consumer to mark the end of the input; compared
+    // by identity
+    private static final List<String> NO_MORE_TWEETS = new ArrayList<>();
+    private static final List<List<String>> NO_MORE_SENTENCES = new ArrayList<>();
+
+    private final int parseWorkers;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    private volatile IngestionStats stats;
+
+    /**
+     * Construct a pipeline that parses on all but two of the available
+     * processors (and on at least one thread), leaving one each for reading
+     * and training.
+     */
+    public IngestionPipeline() {
+        this(
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 2),
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE
+        );
+    }
+
+    /**
+     * Construct a pipeline.
+     *
+     * @param parseWorkers  - the number of threads in the parse stage
+     * @param queueCapacity - the number of batches each queue holds before the
+     *                      stage feeding it blocks
+     * @param batchSize     - the number of tweets read before they are handed
+     *                      to the parse stage
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public IngestionPipeline(int parseWorkers, int queueCapacity, int batchSize) {
+        if (parseWorkers <= 0 || queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Workers, queue capacity and batch size must be positive."
+            );
+        }
+        this.parseWorkers = parseWorkers;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return what each stage did during the last completed or failed
+     *         {@link #run}, or null if the pipeline has not run yet
+     */
+    public IngestionStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Trains a new chain on the tweets in one column of CSV data, with the
+     * same counts as
+     * {@code new MarkovChain(TweetParser.csvDataToTrainingData(br, tweetColumn))}.
+     * The reader is closed when the run ends, whether or not it succeeds.
+     *
+     * @param br          - a BufferedReader that contains the tweets
+     * @param tweetColumn - the number of the column in the buffered reader that
+     *                    contains the tweet
+     * @return the trained chain
+     * @throws IllegalArgumentException if br is null or tweetColumn is negative
+     * @throws RuntimeException         if reading or parsing fails, or the
+     *                                  calling thread is interrupted
+     */
+    public MarkovChain run(BufferedReader br, int tweetColumn) {
+        long start = System.nanoTime();
+        CsvColumnIterator tweets = new CsvColumnIterator(br, tweetColumn);
+        Run run = new Run();
+        ExecutorService pool = Executors.newFixedThreadPool(parseWorkers + 1);
+        Runnable reader = () -> run.read(tweets);
+        try {
+            pool.execute(reader);
+            for (int i = 0; i < parseWorkers; i++) {
+                pool.execute(run::parse);
+            }
+            MarkovChain mc = run.train();
+            Throwable failure = run.failure.get();
+            if (failure != null) {
+                throw new RuntimeException(
+                        "Failed to ingest tweets: " + failure.getMessage(), failure
+                );
+            }
+            return mc;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while ingesting tweets", e);
+        } finally {
+            // wakes up any stage still blocked on a queue if training failed;
+            // a read stage that never started cannot close its reader
+            if (pool.shutdownNow().contains(reader)) {
+                tweets.close();
+            }
+            stats = run.stats(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Samples the depth of a queue each time something is put on it.
+     */
+    private static final class QueueGauge {
+        final LongAdder total = new LongAdder();
+        final LongAdder samples = new LongAdder();
+        final AtomicInteger max = new AtomicInteger();
+
+        <T> void put(BlockingQueue<T> queue, T batch) throws InterruptedException {
+            queue.put(batch);
+            int depth = queue.size();
+            total.add(depth);
+            samples.increment();
+            max.accumulateAndGet(depth, Math::max);
+        }
+
+        double mean() {
+            long n = samples.sum();
+            return n == 0 ? 0 : (double) total.sum() / n;
+        }
+    }
+
+    /**
+     * The queues and counters of one run.
+     */
+    private final class Run {
+        final BlockingQueue<List<String>> tweetQueue = new ArrayBlockingQueue<>(queueCapacity);
+        final BlockingQueue<List<List<String>>> sentenceQueue =
+                new ArrayBlockingQueue<>(queueCapacity);
+        final QueueGauge tweetGauge = new QueueGauge();
+        final QueueGauge sentenceGauge = new QueueGauge();
+        // the first exception thrown by the read or parse stage
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // written by the reader before it ends the tweet queue
+        volatile long readNanos;
+        volatile long readWaitNanos;
+        final LongAdder tweets = new LongAdder();
+        final LongAdder parseNanos = new LongAdder();
+        final LongAdder parseWaitNanos = new LongAdder();
+        // written by the training (calling) thread
+        long sentences;
+        long trainNanos;
+        long trainWaitNanos;
+
+        /**
+         * The read stage: batches up the tweets, then tells every parse
+         * worker that the input has ended. After a failure anywhere it stops
+         * reading early. It closes the source however it ends, since the
+         * source only closes itself once the input is exhausted.
+         */
+        void read(CsvColumnIterator source) {
+            long busy = 0;
+            long waiting = 0;
+            try {
+                try {
+                    long start = System.nanoTime();
+                    List<String> batch = new ArrayList<>(batchSize);
+                    while (failure.get() == null && source.hasNext()) {
+                        batch.add(source.next());
+                        if (batch.size() == batchSize || !source.hasNext()) {
+                            long full = System.nanoTime();
+                            busy += full - start;
+                            tweetGauge.put(tweetQueue, batch);
+                            start = System.nanoTime();
+                            waiting += start - full;
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    source.close();
+                }
+                readNanos = busy;
+                readWaitNanos = waiting;
+                for (int i = 0; i < parseWorkers; i++) {
+                    tweetQueue.put(NO_MORE_TWEETS);
+                }
+            } catch (InterruptedException e) {
+                // the pipeline was shut down
+            }
+        }
+
+        /**
+         * The parse stage, run by each worker until the input has ended.
+         * After a failure the remaining batches are drained without parsing.
+         */
+        void parse() {
+            long busy = 0;
+            long waiting = 0;
+            long parsed = 0;
+            try {
+                while (true) {
+                    long start = System.nanoTime();
+                    List<String> batch = tweetQueue.take();
+                    long taken = System.nanoTime();
+                    waiting += taken - start;
+                    if (batch == NO_MORE_TWEETS) {
+                        break;
+                    }
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    List<List<String>> sentencesOfBatch = new ArrayList<>();
+                    try {
+                        for (String tweet : batch) {
+                            sentencesOfBatch.addAll(TweetTokenizer.tokenize(tweet));
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        continue;
+                    }
+                    long done = System.nanoTime();
+                    busy += done - taken;
+                    parsed += batch.size();
+                    sentenceGauge.put(sentenceQueue, sentencesOfBatch);
+                    waiting += System.nanoTime() - done;
+                }
+                parseNanos.add(busy);
+                parseWaitNanos.add(waiting);
+                tweets.add(parsed);
+                sentenceQueue.put(NO_MORE_SENTENCES);
+            } catch (InterruptedException e) {
+                // the pipeline was shut down
+            }
+        }
+
+        /**
+         * The train stage: counts sentences until every parse worker has
+         * finished.
+         */
+        MarkovChain train() throws InterruptedException {
+            MarkovChain mc = new MarkovChain();
+            int finished = 0;
+            while (finished < parseWorkers) {
+                long start = System.nanoTime();
+                List<List<String>> batch = sentenceQueue.take();
+                long taken = System.nanoTime();
+                trainWaitNanos += taken - start;
+                if (batch == NO_MORE_SENTENCES) {
+                    finished++;
+                    continue;
+                }
+                for (List<String> sentence : batch) {
+                    mc.addSequence(sentence.iterator());
+                }
+                sentences += batch.size();
+                trainNanos += System.nanoTime() - taken;
+            }
+            return mc;
+        }
+
+        IngestionStats stats(long elapsedNanos) {
+            return new IngestionStats(
+                    parseWorkers, queueCapacity, elapsedNanos, tweets.sum(), sentences,
+                    readNanos, readWaitNanos, parseNanos.sum(), parseWaitNanos.sum(),
+                    trainNanos, trainWaitNanos, tweetGauge.max.get(), tweetGauge.mean(),
+                    sentenceGauge.max.get(), sentenceGauge.mean()
+            );
+        }
+    }
+}
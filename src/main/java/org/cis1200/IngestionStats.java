@@ -0,0 +1,189 @@
+package org.cis1200;
+
+/**
+ * What each stage of an {@link IngestionPipeline} run did, from
+ * {@link IngestionPipeline#getStats()}.
+ * <p>
+ * Each stage reports how long it was busy doing its own work and how long it
+ * waited on its queues. The bottleneck is the stage that is busy for most of
+ * the run while the others wait: a full queue in front of a stage means it
+ * cannot keep up, an empty one means its producer cannot. Queue depths are
+ * in batches and are sampled each time a batch is put on the queue.
+ */
+public class IngestionStats {
+
+    private final int parseWorkers;
+    private final int queueCapacity;
+    private final long elapsedNanos;
+    private final long tweets;
+    private final long sentences;
+    private final long readNanos;
+    private final long readWaitNanos;
+    private final long parseNanos;
+    private final long parseWaitNanos;
+    private final long trainNanos;
+    private final long trainWaitNanos;
+    private final int maxParseQueueDepth;
+    private final double meanParseQueueDepth;
+    private final int maxTrainQueueDepth;
+    private final double meanTrainQueueDepth;
+
+    IngestionStats(
+            int parseWorkers, int queueCapacity, long elapsedNanos, long tweets,
+            long sentences, long readNanos, long readWaitNanos, long parseNanos,
+            long parseWaitNanos, long trainNanos, long trainWaitNanos,
+            int maxParseQueueDepth, double meanParseQueueDepth,
+            int maxTrainQueueDepth, double meanTrainQueueDepth
+    ) {
+        this.parseWorkers = parseWorkers;
+        this.queueCapacity = queueCapacity;
+        this.elapsedNanos = elapsedNanos;
+        this.tweets = tweets;
+        this.sentences = sentences;
+        this.readNanos = readNanos;
+        this.readWaitNanos = readWaitNanos;
+        this.parseNanos = parseNanos;
+        this.parseWaitNanos = parseWaitNanos;
+        this.trainNanos = trainNanos;
+        this.trainWaitNanos = trainWaitNanos;
+        this.maxParseQueueDepth = maxParseQueueDepth;
+        this.meanParseQueueDepth = meanParseQueueDepth;
+        this.maxTrainQueueDepth = maxTrainQueueDepth;
+        this.meanTrainQueueDepth = meanTrainQueueDepth;
+    }
+
+    /**
+     * @return the number of threads in the parse stage
+     */
+    public int getParseWorkers() {
+        return parseWorkers;
+    }
+
+    /**
+     * @return the capacity of each queue, in batches
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return the wall-clock time of the whole run, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the number of tweets read and parsed
+     */
+    public long getTweets() {
+        return tweets;
+    }
+
+    /**
+     * @return the number of sentences parsed and trained
+     */
+    public long getSentences() {
+        return sentences;
+    }
+
+    /**
+     * @return the time the read stage spent reading, in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * @return the time the read stage spent waiting for room in the parse
+     *         queue, in nanoseconds
+     */
+    public long getReadWaitNanos() {
+        return readWaitNanos;
+    }
+
+    /**
+     * @return the time the parse workers spent parsing, summed over all of
+     *         them, in nanoseconds
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return the time the parse workers spent waiting on either queue,
+     *         summed over all of them, in nanoseconds
+     */
+    public long getParseWaitNanos() {
+        return parseWaitNanos;
+    }
+
+    /**
+     * @return the time the train stage spent counting, in nanoseconds
+     */
+    public long getTrainNanos() {
+        return trainNanos;
+    }
+
+    /**
+     * @return the time the train stage spent waiting for parsed sentences,
+     *         in nanoseconds
+     */
+    public long getTrainWaitNanos() {
+        return trainWaitNanos;
+    }
+
+    /**
+     * @return the largest number of batches seen waiting to be parsed
+     */
+    public int getMaxParseQueueDepth() {
+        return maxParseQueueDepth;
+    }
+
+    /**
+     * @return the average number of batches waiting to be parsed
+     */
+    public double getMeanParseQueueDepth() {
+        return meanParseQueueDepth;
+    }
+
+    /**
+     * @return the largest number of batches seen waiting to be trained
+     */
+    public int getMaxTrainQueueDepth() {
+        return maxTrainQueueDepth;
+    }
+
+    /**
+     * @return the average number of batches waiting to be trained
+     */
+    public double getMeanTrainQueueDepth() {
+        return meanTrainQueueDepth;
+    }
+
+    /**
+     * @return items per second of busy time; 0 if the stage was never busy
+     */
+    private static double rate(long items, long nanos) {
+        return nanos == 0 ? 0 : items / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d tweets, %d sentences in %.1f ms%n"
+                        + "read:  busy %.1f ms (%.0f tweets/s), waiting %.1f ms%n"
+                        + "parse: %d workers, busy %.1f ms (%.0f tweets/s per worker), "
+                        + "waiting %.1f ms%n"
+                        + "train: busy %.1f ms (%.0f sentences/s), waiting %.1f ms%n"
+                        + "queue depth (capacity %d): parse max %d mean %.1f, "
+                        + "train max %d mean %.1f",
+                tweets, sentences, elapsedNanos / 1e6,
+                readNanos / 1e6, rate(tweets, readNanos), readWaitNanos / 1e6,
+                parseWorkers, parseNanos / 1e6, rate(tweets, parseNanos), parseWaitNanos / 1e6,
+                trainNanos / 1e6, rate(sentences, trainNanos), trainWaitNanos / 1e6,
+                queueCapacity, maxParseQueueDepth, meanParseQueueDepth,
+                maxTrainQueueDepth, meanTrainQueueDepth
+        );
+    }
+}
@@ -0,0 +1,625 @@
+package org.cis1200;
+
+import java.util.Arrays;
+
+/**
+ * A {@link ProbabilityDistribution} specialized to {@code int} keys such as
+ * token IDs. Counts live in parallel {@code int[]} arrays indexed by slot,
+ * and an open-addressing table maps each key to its slot, so nothing is boxed.
+ * <p>
+ * {@link #record} only probes the table and bumps a count; it allocates
+ * nothing except when the arrays have to grow. {@link #pick(int)} and
+ * {@link #index} use the pick order: the slots sorted by key, with a binary
+ * indexed (Fenwick) tree over their counts. {@link #seal()} builds it, and
+ * otherwise the first read after a new key was recorded does. Once it is
+ * built, recording a key that is already present updates the tree in
+ * O(log n), so a row that is sampled while it is still being trained keeps
+ * O(log n) record, pick and index. A new key is inserted into the sorted
+ * slots in O(n) if the row was read since it last changed, and the tree is
+ * rebuilt in O(n) on the next read.
+ * <p>
+ * Reads never modify the pick order once it is built, so any number of
+ * threads may pick from a distribution at once, as long as none of them
+ * records to it at the same time.
+ */
+class IntProbabilityDistribution {
+
+    /**
+     * Orders the keys of a distribution. Keys are picked in ascending order,
+     * just like the entries of the {@code TreeMap} in ProbabilityDistribution.
+     */
+    interface KeyOrder {
+        int compare(int a, int b);
+    }
+
+    /** orders keys by their numeric value */
+    static final KeyOrder NATURAL = Integer::compare;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final KeyOrder keyOrder;
+
+    // open-addressing table from key to slot + 1; 0 marks an empty bucket
+    // INVARIANT: buckets.length is a power of two, at least twice capacity
+    private int[] buckets;
+    // keys[slot] and counts[slot] for slots in [0, size), in insertion order
+    // INVARIANT: counts[slot] > 0
+    private int[] keys;
+    private int[] counts;
+    private int size = 0;
+    // INVARIANT: total is the sum of counts[0, size)
+    private int total = 0;
+
+    /**
+     * The pick order of a distribution: its slots sorted by key order, and a
+     * Fenwick tree over their counts. Only record changes the tree, and only
+     * the counts of keys that were already present.
+     */
+    private static final class Order {
+        final int[] slots;
+        // positions[slot] is the position of slot in slots
+        final int[] positions;
+        // 1-based Fenwick tree: tree[i] is the sum of the counts of
+        // slots[i - lowbit(i) .. i)
+        final int[] tree;
+
+        Order(int[] slots, int[] positions, int[] tree) {
+            this.slots = slots;
+            this.positions = positions;
+            this.tree = tree;
+        }
+    }
+
+    private static final Order EMPTY = new Order(new int[0], new int[0], new int[1]);
+
+    // the pick order of the current counts, or null if keys were added or
+    // removed, or counts merged or subtracted, since it was built
+    private volatile Order order = EMPTY;
+    // the slots in [0, size) sorted by keyOrder, or null if keys were added
+    // or removed since they were last sorted
+    private int[] sortedSlots = EMPTY.slots;
+
+    /**
+     * Creates an empty distribution whose keys are ordered numerically.
+     */
+    public IntProbabilityDistribution() {
+        this(NATURAL);
+    }
+
+    /**
+     * Creates an empty distribution whose keys are picked in the given order.
+     *
+     * @param keyOrder - the order in which keys are laid out for pick and index
+     */
+    public IntProbabilityDistribution(KeyOrder keyOrder) {
+        if (keyOrder == null) {
+            throw new IllegalArgumentException("Key order cannot be null.");
+        }
+        this.keyOrder = keyOrder;
+        this.keys = new int[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+        this.buckets = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Total number of instances that have been added via record().
+     *
+     * @return the number of records in the distribution
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of distinct keys in the distribution
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the estimated bytes retained by this distribution, see
+     *         {@link ChainStats}
+     */
+    long estimatedBytes() {
+        return ChainStats.objectBytes(36) + ChainStats.arrayBytes(buckets.length, 4)
+                + 2 * ChainStats.arrayBytes(keys.length, 4)
+                + ChainStats.objectBytes(12) + 2 * ChainStats.arrayBytes(size, 4)
+                + ChainStats.arrayBytes(size + 1, 4);
+    }
+
+    /**
+     * Spreads the bits of a key so that consecutive IDs do not cluster.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the slot holding key, or -1 if key has not been recorded
+     */
+    private int slotOf(int key) {
+        int mask = buckets.length - 1;
+        for (int b = hash(key) & mask;; b = (b + 1) & mask) {
+            int entry = buckets[b];
+            if (entry == 0) {
+                return -1;
+            }
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Add an instance to the distribution. If the key already exists, its
+     * number of occurrences is incremented in O(log n).
+     *
+     * @param key - a key to add to the distribution
+     */
+    public void record(int key) {
+        record(key, 1);
+    }
+
+    /**
+     * Add several instances of the same key to the distribution at once, as if
+     * record() had been called count times.
+     *
+     * @param key   - a key to add to the distribution
+     * @param count - the number of instances to add
+     * @throws IllegalArgumentException if count is not positive
+     */
+    public void record(int key, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive.");
+        }
+        int mask = buckets.length - 1;
+        int b = hash(key) & mask;
+        while (buckets[b] != 0) {
+            int slot = buckets[b] - 1;
+            if (keys[slot] == key) {
+                counts[slot] += count;
+                total += count;
+                countChanged(slot, count);
+                return;
+            }
+            b = (b + 1) & mask;
+        }
+        if (size == keys.length) {
+            grow();
+            record(key, count);
+            return;
+        }
+        keys[size] = key;
+        counts[size] = count;
+        buckets[b] = size + 1;
+        size++;
+        total += count;
+        keyAdded(size - 1);
+    }
+
+    /**
+     * Adds delta to the count of slot in the pick order, if it is built.
+     */
+    private void countChanged(int slot, int delta) {
+        Order current = order;
+        if (current != null) {
+            int[] tree = current.tree;
+            for (int i = current.positions[slot] + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+    }
+
+    /**
+     * Discards the pick order after a new key was recorded in slot. If the
+     * order was built, i.e. the distribution was read since it last changed,
+     * slot is inserted into its sorted slots; otherwise they are sorted again
+     * on the next read, so training without reads never shifts them.
+     */
+    private void keyAdded(int slot) {
+        Order current = order;
+        order = null;
+        if (current == null) {
+            sortedSlots = null;
+            return;
+        }
+        int[] sorted = current.slots;
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keyOrder.compare(keys[sorted[mid]], keys[slot]) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int[] inserted = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, inserted, 0, lo);
+        inserted[lo] = slot;
+        System.arraycopy(sorted, lo, inserted, lo + 1, sorted.length - lo);
+        sortedSlots = inserted;
+    }
+
+    /**
+     * Discards the pick order after counts were merged or subtracted, keeping
+     * the sorted slots if they are known.
+     */
+    private void countsChanged() {
+        Order current = order;
+        if (current != null) {
+            sortedSlots = current.slots;
+            order = null;
+        }
+    }
+
+    /**
+     * Discards the pick order and the sorted slots after keys were added or
+     * removed.
+     */
+    private void keysChanged() {
+        sortedSlots = null;
+        order = null;
+    }
+
+    /**
+     * Doubles the capacity of the slot arrays and rehashes every key.
+     */
+    private void grow() {
+        resize(keys.length * 2);
+    }
+
+    /**
+     * Resizes the slot arrays to the given capacity and rehashes every key.
+     */
+    private void resize(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        buckets = new int[capacity * 2];
+        int mask = buckets.length - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int b = hash(keys[slot]) & mask;
+            while (buckets[b] != 0) {
+                b = (b + 1) & mask;
+            }
+            buckets[b] = slot + 1;
+        }
+    }
+
+    /**
+     * Adds every count of another distribution to this one in a single pass
+     * over the sorted keys of both, so the merged order is known without
+     * sorting again. The other distribution is not modified.
+     * <p>
+     * The keys of other are translated through keyMap, and after translation
+     * they must be in the same relative order under this distribution's key
+     * order as they are in other. This holds for token IDs of two vocabularies
+     * that are both ordered by their words.
+     *
+     * @param other  - the distribution whose counts are added
+     * @param keyMap - keyMap[k] is the key in this distribution of key k of
+     *               other, or null if both use the same keys
+     * @throws IllegalArgumentException if other is this distribution
+     */
+    public void merge(IntProbabilityDistribution other, int[] keyMap) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a distribution into itself.");
+        }
+        if (other.size == 0) {
+            return;
+        }
+        int oldSize = size;
+        int capacity = keys.length;
+        while (capacity < oldSize + other.size) {
+            capacity *= 2;
+        }
+        if (capacity != keys.length) {
+            resize(capacity);
+        }
+        int[] mine = sortedSlots();
+        int[] otherOrder = other.order().slots;
+
+        int[] merged = new int[oldSize + other.size];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (j < other.size) {
+            int otherSlot = otherOrder[j];
+            int key = keyMap == null ? other.keys[otherSlot] : keyMap[other.keys[otherSlot]];
+            int cmp = i == oldSize ? 1 : keyOrder.compare(keys[mine[i]], key);
+            if (cmp < 0) {
+                merged[n++] = mine[i++];
+            } else {
+                int slot = cmp == 0 ? mine[i++] : insertSlot(key);
+                counts[slot] += other.counts[otherSlot];
+                merged[n++] = slot;
+                j++;
+            }
+        }
+        while (i < oldSize) {
+            merged[n++] = mine[i++];
+        }
+        total += other.total;
+        keysChanged();
+        sortedSlots = Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * Removes every count of another distribution from this one, undoing a
+     * {@link #merge} of it. Keys whose count drops to zero are removed, and
+     * the slot arrays shrink when most of their capacity is unused. The other
+     * distribution is not modified.
+     *
+     * @param other  - the distribution whose counts are removed
+     * @param keyMap - keyMap[k] is the key in this distribution of key k of
+     *               other, or null if both use the same keys
+     * @throws IllegalArgumentException if other is this distribution, or if
+     *                                  some key occurs more often in other
+     *                                  than here; nothing is removed then
+     */
+    public void subtract(IntProbabilityDistribution other, int[] keyMap) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot subtract a distribution from itself.");
+        }
+        int[] slots = new int[other.size];
+        for (int i = 0; i < other.size; i++) {
+            int key = keyMap == null ? other.keys[i] : keyMap[other.keys[i]];
+            slots[i] = slotOf(key);
+            if (slots[i] < 0 || counts[slots[i]] < other.counts[i]) {
+                throw new IllegalArgumentException(
+                        "Cannot remove more instances of " + key + " than were recorded."
+                );
+            }
+        }
+        boolean emptied = false;
+        for (int i = 0; i < other.size; i++) {
+            counts[slots[i]] -= other.counts[i];
+            emptied |= counts[slots[i]] == 0;
+        }
+        total -= other.total;
+        countsChanged();
+        if (emptied) {
+            removeEmptySlots();
+        }
+    }
+
+    /**
+     * Drops the slots whose count is zero, keeping the others in insertion
+     * order, then shrinks the arrays while at most a quarter of them is used.
+     */
+    private void removeEmptySlots() {
+        int n = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (counts[slot] > 0) {
+                keys[n] = keys[slot];
+                counts[n] = counts[slot];
+                n++;
+            }
+        }
+        size = n;
+        keysChanged();
+        int capacity = keys.length;
+        while (capacity > INITIAL_CAPACITY && size * 4 <= capacity) {
+            capacity /= 2;
+        }
+        resize(capacity);
+    }
+
+    /**
+     * Adds a key that is not yet in the distribution with a count of zero.
+     * There must be room for it in the slot arrays.
+     *
+     * @return the slot of the new key
+     */
+    private int insertSlot(int key) {
+        int mask = buckets.length - 1;
+        int b = hash(key) & mask;
+        while (buckets[b] != 0) {
+            b = (b + 1) & mask;
+        }
+        keys[size] = key;
+        counts[size] = 0;
+        buckets[b] = size + 1;
+        return size++;
+    }
+
+    /**
+     * Counts the number of occurrences of a key in the distribution.
+     *
+     * @param key - the key you want to get the count of
+     * @return the number of occurrences of key
+     */
+    public int count(int key) {
+        int slot = slotOf(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Picks a key of the distribution according to the provided
+     * NumberGenerator.
+     *
+     * @param generator - uses the generator to pick a particular key
+     * @return the chosen key
+     * @throws IllegalArgumentException if a number received from the generator
+     *                                  is less than zero or not less than the
+     *                                  total number of records
+     */
+    public int pick(NumberGenerator generator) {
+        return pick(generator.next(total));
+    }
+
+    /**
+     * Picks a key of the distribution non-randomly according to the provided
+     * index, by descending the Fenwick tree.
+     *
+     * @param index - use this to pick a particular key in the distribution
+     * @return the chosen key
+     * @throws IllegalArgumentException if index is less than zero or not less
+     *                                  than the total number of records
+     */
+    public int pick(int index) {
+        if (index >= total || index < 0) {
+            throw new IllegalArgumentException(
+                    "Index has to be less than the total number of records in the PD"
+            );
+        }
+        Order current = order();
+        int[] tree = current.tree;
+        int position = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= size && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return keys[current.slots[position]];
+    }
+
+    /**
+     * Returns the index of the key such that pick(index) will return the key.
+     *
+     * @param key - the key to find the index of
+     * @return the index of the specified key
+     * @throws IllegalArgumentException if the key is not in the distribution
+     */
+    public int index(int key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            throw new IllegalArgumentException("element not in the distribution");
+        }
+        Order current = order();
+        int[] tree = current.tree;
+        int index = 0;
+        for (int i = current.positions[slot]; i > 0; i -= i & -i) {
+            index += tree[i];
+        }
+        return index;
+    }
+
+    /**
+     * Returns the key at a position of the sorted order, so that callers can
+     * iterate over the distribution in pick order without copying it.
+     *
+     * @param position - a position in [0, size())
+     * @return the key at that position
+     */
+    public int keyAt(int position) {
+        return keys[order().slots[position]];
+    }
+
+    /**
+     * @param position - a position in [0, size())
+     * @return the count of the key at that position of the sorted order
+     */
+    public int countAt(int position) {
+        return counts[order().slots[position]];
+    }
+
+    /**
+     * Compiles the current counts into an {@link AliasTable} that samples in
+     * constant time. Records added afterwards are not reflected in the table.
+     *
+     * @return an alias table with the same weights as this distribution
+     */
+    public AliasTable freeze() {
+        return new AliasTable(Arrays.copyOf(keys, size), Arrays.copyOf(counts, size), total);
+    }
+
+    /**
+     * Builds the pick order of the current counts now rather than on the
+     * next read, so that reads only look it up until the next record.
+     */
+    public void seal() {
+        order();
+    }
+
+    /**
+     * @return the pick order of the current counts, built in O(n) and
+     *         published if it was discarded since it was last built. Threads
+     *         that read at the same time may each build an equal order.
+     */
+    private Order order() {
+        Order current = order;
+        if (current == null) {
+            int[] slots = sortedSlots();
+            int[] positions = new int[size];
+            int[] tree = new int[size + 1];
+            for (int i = 1; i <= size; i++) {
+                positions[slots[i - 1]] = i - 1;
+                tree[i] += counts[slots[i - 1]];
+                int parent = i + (i & -i);
+                if (parent <= size) {
+                    tree[parent] += tree[i];
+                }
+            }
+            current = new Order(slots, positions, tree);
+            order = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return the slots sorted by key order, sorting them if keys were added
+     *         or removed since they were last sorted. The array must not be
+     *         modified.
+     */
+    private int[] sortedSlots() {
+        Order current = order;
+        if (current != null) {
+            return current.slots;
+        }
+        int[] slots = sortedSlots;
+        if (slots == null) {
+            slots = new int[size];
+            for (int slot = 0; slot < size; slot++) {
+                slots[slot] = slot;
+            }
+            sortSlots(slots, new int[size], 0, size);
+        }
+        return slots;
+    }
+
+    /**
+     * Merge sort of slots[from, to) by the key order of their keys.
+     */
+    private void sortSlots(int[] slots, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortSlots(slots, scratch, from, mid);
+        sortSlots(slots, scratch, mid, to);
+        if (keyOrder.compare(keys[slots[mid - 1]], keys[slots[mid]]) <= 0) {
+            return;
+        }
+        System.arraycopy(slots, from, scratch, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || i < mid && keyOrder.compare(keys[scratch[i]], keys[scratch[j]]) <= 0) {
+                slots[k] = scratch[i++];
+            } else {
+                slots[k] = scratch[j++];
+            }
+        }
+    }
+
+    /**
+     * Print the probability distribution
+     */
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            res.append("Frequency of ");
+            res.append(keyAt(i));
+            res.append(": ");
+            res.append(countAt(i));
+        }
+        return res.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package org.cis1200;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive {@code long} keys to {@code int}
+ * values, with linear probing. Nothing is boxed, so a lookup never allocates.
+ * <p>
+ * {@code Long.MIN_VALUE} marks empty buckets and cannot be used as a key.
+ */
+class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // INVARIANT: keys.length == values.length is a power of two, and at most
+    // half of the buckets are in use
+    private long[] keys;
+    private int[] values;
+    private int size = 0;
+
+    public LongIntHashMap() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new int[INITIAL_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return the number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Mixes all 64 bits of a key into the low bits used as bucket index.
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * @param key     - the key to look up
+     * @param missing - the value to return if key is not in the map
+     * @return the value associated with key, or missing
+     */
+    public int get(long key, int missing) {
+        int mask = keys.length - 1;
+        for (int b = hash(key) & mask; keys[b] != EMPTY; b = (b + 1) & mask) {
+            if (keys[b] == key) {
+                return values[b];
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key   - the key, which must not be {@code Long.MIN_VALUE}
+     * @param value - the value to associate with key
+     * @throws IllegalArgumentException if key is {@code Long.MIN_VALUE}
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key.");
+        }
+        int mask = keys.length - 1;
+        int b = hash(key) & mask;
+        while (keys[b] != EMPTY) {
+            if (keys[b] == key) {
+                values[b] = value;
+                return;
+            }
+            b = (b + 1) & mask;
+        }
+        keys[b] = key;
+        values[b] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Doubles the number of buckets and rehashes every key.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int b = hash(oldKeys[i]) & mask;
+                while (keys[b] != EMPTY) {
+                    b = (b + 1) & mask;
+                }
+                keys[b] = oldKeys[i];
+                values[b] = oldValues[i];
+            }
+        }
+    }
+}
@@ -1,26 +1,76 @@
 package org.cis1200;
 
+import java.io.BufferedReader;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
 
 public class MarkovChain {
 
+    /** dense int IDs of every token seen by this chain, possibly shared */
+    final Vocabulary vocabulary;
+
+    /** ID of {@code END_TOKEN} in the vocabulary */
+    final int endId;
+
     /** probability distribution of initial words in a sentence */
     final ProbabilityDistribution<String> startTokens;
 
-    /** for each word, probability distribution of next word in a sentence */
+    /**
+     * for each token ID, probability distribution of the IDs of the next token
+     * in a sentence, or null if the token was never followed by anything
+     */
+    private final ArrayList<IntProbabilityDistribution> transitions;
+
+    /** orders the successors of every token by the natural order of their words */
+    private final IntProbabilityDistribution.KeyOrder wordOrder;
+
+    /** number of non-null entries of {@code transitions} */
+    private int transitionCount = 0;
+
+    /**
+     * for each word, probability distribution of next word in a sentence.
+     * This is a read-only view of {@code transitions}; every lookup copies the
+     * distribution, so it is meant for inspection and not for generation.
+     */
     final Map<String, ProbabilityDistribution<String>> bigramFrequencies;
 
     /** end of sentence marker */
     static final String END_TOKEN = "<END>";
 
+    /** alias table of start token IDs, or null if the chain is not frozen */
+    private AliasTable frozenStartTokens;
+
+    /** alias tables of {@code transitions}, or null if not frozen */
+    private AliasTable[] frozenTransitions;
+
     /**
      * Construct an empty {@code MarkovChain} that can later be trained.
      *
      * This constructor is implemented for you.
      */
     public MarkovChain() {
-        this.bigramFrequencies = new TreeMap<>();
+        this(new Vocabulary());
+    }
+
+    /**
+     * Construct an empty {@code MarkovChain} that interns its tokens in the
+     * given vocabulary, so that several chains can agree on token IDs.
+     *
+     * @param vocabulary - the vocabulary to intern tokens in
+     * @throws IllegalArgumentException when vocabulary is null
+     */
+    public MarkovChain(Vocabulary vocabulary) {
+        if (vocabulary == null) {
+            throw new IllegalArgumentException("Vocabulary cannot be null.");
+        }
+        this.vocabulary = vocabulary;
+        this.endId = vocabulary.intern(END_TOKEN);
+        this.wordOrder = vocabulary::compare;
         this.startTokens = new ProbabilityDistribution<>();
+        this.transitions = new ArrayList<>();
+        this.bigramFrequencies = new TransitionView();
     }
 
     /**
@@ -34,15 +84,250 @@ public class MarkovChain {
      *                     the {@code MarkovChain}
      */
     public MarkovChain(List<List<String>> trainingData) {
-        this.bigramFrequencies = new TreeMap<>();
-        this.startTokens = new ProbabilityDistribution<>();
+        this();
 
         if (trainingData == null) {
             throw new IllegalArgumentException("Training data cannot be null.");
         }
 
-        for (List<String> sequence : trainingData) {
-            addSequence(sequence.iterator());
+        train(trainingData.iterator());
+    }
+
+    /**
+     * Trains the chain on sentences as they are produced, e.g. by
+     * {@link TweetParser#csvDataToSentences}. Each sentence is counted and
+     * then dropped, so the memory used while training grows with the size of
+     * the model rather than the size of the corpus.
+     *
+     * @param sentences - the input sequences of tokens
+     * @throws IllegalArgumentException when sentences is null
+     */
+    public void train(Iterator<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("Sentences cannot be null.");
+        }
+        while (sentences.hasNext()) {
+            addSequence(sentences.next().iterator());
+        }
+    }
+
+    /**
+     * Trains the chain on the tweets in one column of CSV data, with the same
+     * result as {@code train(TweetParser.csvDataToSentences(br, tweetColumn))}.
+     * <p>
+     * The tweets are parsed straight out of the CSV reader's buffer to token
+     * IDs against this chain's vocabulary by a {@link TweetTokenizer}, so no
+     * String is created for a tweet, nor for a word that the vocabulary
+     * already holds. On repetitive corpora this leaves almost no garbage per
+     * word.
+     *
+     * @param br          - a BufferedReader that contains the tweets
+     * @param tweetColumn - the number of the column in the buffered reader that
+     *                    contains the tweet
+     * @throws IllegalArgumentException when br is null
+     */
+    public void train(BufferedReader br, int tweetColumn) {
+        if (br == null) {
+            throw new IllegalArgumentException("BufferedReader cannot be null");
+        }
+        if (tweetColumn < 0) {
+            TweetParser.close(br);
+            return;
+        }
+        TweetTokenizer tokenizer = new TweetTokenizer(vocabulary);
+        CsvColumnIterator tweets = new CsvColumnIterator(br, tweetColumn);
+        CharSequence tweet;
+        while ((tweet = tweets.nextSequence()) != null) {
+            int sentences = tokenizer.tokenizeIds(tweet);
+            for (int i = 0; i < sentences; i++) {
+                addSequence(
+                        tokenizer.getIds(), tokenizer.sentenceStart(i), tokenizer.sentenceEnd(i)
+                );
+            }
+        }
+    }
+
+    /**
+     * Trains the chain on a stream of sentences, one sentence at a time. See
+     * {@link #train(Iterator)}.
+     *
+     * @param sentences - the input sequences of tokens
+     * @throws IllegalArgumentException when sentences is null
+     */
+    public void train(Stream<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("Sentences cannot be null.");
+        }
+        train(sentences.iterator());
+    }
+
+    /**
+     * Trains a {@code MarkovChain} on several threads. The training data is
+     * split into shards, each shard is trained into its own partial chain, and
+     * the partial chains are merged pairwise with {@link #merge}. The result
+     * has exactly the same counts as {@link #MarkovChain(List)} on the same
+     * data, although its tokens may be interned in a different order.
+     *
+     * @param trainingData - the input sequences of tokens
+     * @param parallelism  - the number of threads to train on
+     * @return the trained chain
+     * @throws IllegalArgumentException when trainingData is null or parallelism
+     *                                  is not positive
+     */
+    public static MarkovChain trainParallel(List<List<String>> trainingData, int parallelism) {
+        if (trainingData == null) {
+            throw new IllegalArgumentException("Training data cannot be null.");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        // shards are found by index, so make sure that is cheap
+        List<List<String>> data = trainingData instanceof RandomAccess ? trainingData
+                : new ArrayList<>(trainingData);
+        // a few shards per thread keeps the threads busy if shards are uneven
+        int shardSize = Math.max(1, data.size() / (parallelism * 4));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new TrainingTask(data, 0, data.size(), shardSize));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Trains the sequences in [from, to) of the training data, splitting the
+     * range in half until it is no larger than a shard.
+     */
+    private static class TrainingTask extends RecursiveTask<MarkovChain> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<String>> data;
+        private final int from;
+        private final int to;
+        private final int shardSize;
+
+        TrainingTask(List<List<String>> data, int from, int to, int shardSize) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.shardSize = shardSize;
+        }
+
+        @Override
+        protected MarkovChain compute() {
+            if (to - from <= shardSize) {
+                MarkovChain partial = new MarkovChain();
+                for (List<String> sequence : data.subList(from, to)) {
+                    partial.addSequence(sequence.iterator());
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            TrainingTask right = new TrainingTask(data, mid, to, shardSize);
+            right.fork();
+            MarkovChain left = new TrainingTask(data, from, mid, shardSize).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+
+    /**
+     * Folds every count of another chain into this one, as if this chain had
+     * also been trained on the other chain's training data. The chains may use
+     * different vocabularies; tokens are matched by their words. The other
+     * chain is not modified.
+     * <p>
+     * Each distribution is merged in one pass over the sorted successors of
+     * both chains rather than by replaying records. Merging only adds counts,
+     * so it is associative and commutative: partial chains can be combined in
+     * any tree shape and give the same model.
+     *
+     * @param other the chain whose counts are added
+     * @throws IllegalArgumentException when other is null or this chain
+     */
+    public void merge(MarkovChain other) {
+        if (other == null || other == this) {
+            throw new IllegalArgumentException("Can only merge another, non-null chain.");
+        }
+        thaw();
+        startTokens.merge(other.startTokens, word -> vocabulary.word(vocabulary.intern(word)));
+        // ids[i] is the ID in this vocabulary of ID i of the other vocabulary
+        int[] ids = null;
+        if (other.vocabulary != vocabulary) {
+            ids = new int[other.vocabulary.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = vocabulary.intern(other.vocabulary.word(i));
+            }
+        }
+        for (int id = 0; id < other.transitions.size(); id++) {
+            IntProbabilityDistribution row = other.transitions.get(id);
+            if (row != null) {
+                rowFor(ids == null ? id : ids[id]).merge(row, ids);
+            }
+        }
+    }
+
+    /**
+     * Removes every count of another chain from this one, undoing a
+     * {@link #merge} of it, e.g. to forget old training data. Distributions
+     * whose counts drop to zero are removed, so tokens that are no longer
+     * followed by anything disappear from {@code bigramFrequencies}, and
+     * tokens that no longer start a sentence disappear from
+     * {@code startTokens}. Tokens stay in the vocabulary. The other chain is
+     * not modified.
+     *
+     * @param other the chain whose counts are removed
+     * @throws IllegalArgumentException when other is null or this chain, or
+     *                                  when it has a count that this chain
+     *                                  does not; nothing is removed then
+     */
+    public void subtract(MarkovChain other) {
+        if (other == null || other == this) {
+            throw new IllegalArgumentException("Can only subtract another, non-null chain.");
+        }
+        // ids[i] is the ID in this vocabulary of ID i of the other vocabulary
+        int[] ids = null;
+        if (other.vocabulary != vocabulary) {
+            ids = new int[other.vocabulary.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = vocabulary.id(other.vocabulary.word(i));
+            }
+        }
+        // check everything first, so that a failed subtraction changes nothing
+        for (Map.Entry<String, Integer> e : other.startTokens.getRecords().entrySet()) {
+            if (startTokens.count(e.getKey()) < e.getValue()) {
+                throw new IllegalArgumentException("Start token was never recorded: " + e.getKey());
+            }
+        }
+        for (int id = 0; id < other.transitions.size(); id++) {
+            IntProbabilityDistribution row = other.transitions.get(id);
+            if (row == null) {
+                continue;
+            }
+            IntProbabilityDistribution target = row(ids == null ? id : ids[id]);
+            for (int i = 0; i < row.size(); i++) {
+                int key = ids == null ? row.keyAt(i) : ids[row.keyAt(i)];
+                if (target == null || key < 0 || target.count(key) < row.countAt(i)) {
+                    throw new IllegalArgumentException(
+                            "Bigram was never recorded: " + other.vocabulary.word(id) + " "
+                                    + other.vocabulary.word(row.keyAt(i))
+                    );
+                }
+            }
+        }
+
+        thaw();
+        startTokens.subtract(other.startTokens);
+        for (int id = 0; id < other.transitions.size(); id++) {
+            IntProbabilityDistribution row = other.transitions.get(id);
+            if (row != null) {
+                int target = ids == null ? id : ids[id];
+                transitions.get(target).subtract(row, ids);
+                if (transitions.get(target).getTotal() == 0) {
+                    transitions.set(target, null);
+                    transitionCount--;
+                }
+            }
         }
     }
 
@@ -62,13 +347,37 @@ public class MarkovChain {
                     "Neither the first nor second parameters can be null."
             );
         }
-        ProbabilityDistribution<String> pd = bigramFrequencies.get(first);
+        addBigram(vocabulary.intern(first), vocabulary.intern(second), 1);
+    }
+
+    /**
+     * Records a bigram of token IDs, creating the distribution of {@code first}
+     * if this is the first time it has appeared in a bigram.
+     *
+     * @param first  the ID of the first token of the bigram
+     * @param second the ID of the second token of the bigram
+     * @param count  the number of times the bigram occurred
+     */
+    void addBigram(int first, int second, int count) {
+        thaw();
+        rowFor(first).record(second, count);
+    }
+
+    /**
+     * @param id a token ID
+     * @return the distribution of tokens following id, created if necessary
+     */
+    private IntProbabilityDistribution rowFor(int id) {
+        while (transitions.size() <= id) {
+            transitions.add(null);
+        }
+        IntProbabilityDistribution pd = transitions.get(id);
         if (pd == null) {
-            pd = new ProbabilityDistribution<>();
-            bigramFrequencies.put(first, pd);
+            pd = new IntProbabilityDistribution(wordOrder);
+            transitions.set(id, pd);
+            transitionCount++;
         }
-        pd.record(second);
-
+        return pd;
     }
 
     /**
@@ -98,20 +407,202 @@ public class MarkovChain {
             return;
         }
 
-        String prevToken = tweet.next();
-        if (!prevToken.equals(END_TOKEN)) { // Ensure we do not start with END_TOKEN
-            startTokens.record(prevToken);
+        int prevToken = vocabulary.intern(tweet.next());
+        if (prevToken != endId) { // Ensure we do not start with END_TOKEN
+            thaw();
+            // record the interned String so that every distribution shares it
+            startTokens.record(vocabulary.word(prevToken));
         } else {
             return; // Exit if the first token is END_TOKEN
         }
 
         while (tweet.hasNext()) {
-            String nextToken = tweet.next();
-            addBigram(prevToken, nextToken);
+            int nextToken = vocabulary.intern(tweet.next());
+            addBigram(prevToken, nextToken, 1);
             prevToken = nextToken;
         }
 
-        addBigram(prevToken, END_TOKEN);
+        addBigram(prevToken, endId, 1);
+    }
+
+    /**
+     * Adds a sentence of token IDs in this chain's vocabulary, exactly like
+     * {@link #addSequence(Iterator)} on their words.
+     *
+     * @param ids  - holds the IDs of the sentence
+     * @param from - the position of the first ID of the sentence
+     * @param to   - the position after the last ID of the sentence
+     */
+    void addSequence(int[] ids, int from, int to) {
+        if (from == to || ids[from] == endId) {
+            return;
+        }
+        thaw();
+        startTokens.record(vocabulary.word(ids[from]));
+        for (int i = from + 1; i < to; i++) {
+            addBigram(ids[i - 1], ids[i], 1);
+        }
+        addBigram(ids[to - 1], endId, 1);
+    }
+
+    /**
+     * @param id a token ID, or -1
+     * @return the distribution of tokens following id, or null if there is none
+     */
+    IntProbabilityDistribution row(int id) {
+        if (id < 0 || id >= transitions.size()) {
+            return null;
+        }
+        return transitions.get(id);
+    }
+
+    /**
+     * Copies a row of {@code transitions} into a distribution over words.
+     */
+    private ProbabilityDistribution<String> toDistribution(IntProbabilityDistribution row) {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        for (int i = 0; i < row.size(); i++) {
+            pd.record(vocabulary.word(row.keyAt(i)), row.countAt(i));
+        }
+        return pd;
+    }
+
+    /**
+     * The {@code bigramFrequencies} view: maps each word to a copy of the
+     * distribution of its successors, in the natural order of the words.
+     */
+    private class TransitionView extends AbstractMap<String, ProbabilityDistribution<String>> {
+        @Override
+        public ProbabilityDistribution<String> get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            IntProbabilityDistribution row = row(vocabulary.id((String) key));
+            return row == null ? null : toDistribution(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && row(vocabulary.id((String) key)) != null;
+        }
+
+        @Override
+        public int size() {
+            return transitionCount;
+        }
+
+        @Override
+        public Set<Entry<String, ProbabilityDistribution<String>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return transitionCount;
+                }
+
+                @Override
+                public Iterator<Entry<String, ProbabilityDistribution<String>>> iterator() {
+                    List<Entry<String, ProbabilityDistribution<String>>> entries =
+                            new ArrayList<>();
+                    for (int id : vocabulary.sortedIds()) {
+                        IntProbabilityDistribution row = row(id);
+                        if (row != null) {
+                            entries.add(
+                                    new SimpleImmutableEntry<>(
+                                            vocabulary.word(id), toDistribution(row)
+                                    )
+                            );
+                        }
+                    }
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+            };
+        }
+    }
+
+    /**
+     * Compiles every distribution of this chain into an {@link AliasTable},
+     * so that {@link #getRandomWalk()} samples each step in constant time,
+     * and builds the pick order of every distribution, so that walks on any
+     * number of threads only read the chain. Training the chain any further
+     * discards the compiled tables; call this method again once training is
+     * done.
+     */
+    public void freeze() {
+        seal();
+        AliasTable[] tables = new AliasTable[transitions.size()];
+        for (int id = 0; id < tables.length; id++) {
+            IntProbabilityDistribution row = transitions.get(id);
+            if (row != null) {
+                tables[id] = row.freeze();
+            }
+        }
+        Map<String, Integer> starts = startTokens.getRecords();
+        int[] ids = new int[starts.size()];
+        int[] weights = new int[starts.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : starts.entrySet()) {
+            ids[i] = vocabulary.id(e.getKey());
+            weights[i] = e.getValue();
+            i++;
+        }
+        frozenStartTokens = new AliasTable(ids, weights, startTokens.getTotal());
+        frozenTransitions = tables;
+    }
+
+    /**
+     * Compiles a read-only copy of this chain for generation, with all of its
+     * transitions laid out in flat arrays. Training this chain afterwards does
+     * not affect the compiled copy.
+     *
+     * @return a compiled copy of this chain
+     */
+    public CompiledMarkovChain compile() {
+        seal();
+        return new CompiledMarkovChain(this, false);
+    }
+
+    /**
+     * Like {@link #compile()}, but the transitions of the compiled copy are
+     * kept in direct buffers outside of the Java heap, so a large model adds
+     * neither to the heap nor to garbage collection pauses. Only the token
+     * Strings stay on the heap. The native memory is freed when the compiled
+     * copy is garbage collected.
+     *
+     * @return a compiled copy of this chain, stored off the heap
+     * @throws IllegalStateException if the chain has more than 2^29 bigrams
+     */
+    public CompiledMarkovChain compileOffHeap() {
+        seal();
+        return new CompiledMarkovChain(this, true);
+    }
+
+    /**
+     * Builds the pick order of every distribution now, rather than on the
+     * first walk after training.
+     */
+    private void seal() {
+        startTokens.seal();
+        for (IntProbabilityDistribution row : transitions) {
+            if (row != null) {
+                row.seal();
+            }
+        }
+    }
+
+    /**
+     * @return true if the chain has been frozen and not trained since
+     */
+    public boolean isFrozen() {
+        return frozenTransitions != null;
+    }
+
+    /**
+     * Discards the alias tables built by {@link #freeze()}, since they no
+     * longer match the counts once the chain is trained further.
+     */
+    private void thaw() {
+        frozenStartTokens = null;
+        frozenTransitions = null;
     }
 
     /**
@@ -145,20 +636,62 @@ public class MarkovChain {
     }
 
     /**
-     * Gets a random walk through the Markov Chain.
-     *
-     * This function is implemented for you.
+     * Gets a random walk through the Markov Chain. If the chain is frozen, each
+     * step is sampled from its alias table in constant time.
      *
      * @return an {@code Iterator} that yields the tokens on that path
      */
     public Iterator<String> getRandomWalk() {
+        if (isFrozen()) {
+            return new FrozenChainIterator(new RandomNumberGenerator());
+        }
         return getWalk(new RandomNumberGenerator());
     }
 
+    /**
+     * A random walk over the alias tables built by {@link #freeze()}. The walk
+     * keeps using the tables that were current when it started, even if the
+     * chain is trained while it is in progress.
+     */
+    class FrozenChainIterator implements Iterator<String> {
+        private final NumberGenerator ng;
+        private final AliasTable[] tables;
+        // -1 once the walk has reached END_TOKEN
+        private int currentToken = -1;
+
+        FrozenChainIterator(NumberGenerator ng) {
+            this.ng = ng;
+            this.tables = frozenTransitions;
+            if (frozenStartTokens.getTotal() > 0) {
+                int start = frozenStartTokens.sample(ng);
+                if (start < tables.length && tables[start] != null) {
+                    currentToken = start;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentToken >= 0;
+        }
+
+        @Override
+        public String next() {
+            if (currentToken < 0) {
+                throw new NoSuchElementException("End of chain reached.");
+            }
+            String result = vocabulary.word(currentToken);
+            AliasTable table = currentToken < tables.length ? tables[currentToken] : null;
+            int nextToken = table == null ? endId : table.sample(ng);
+            currentToken = nextToken == endId ? -1 : nextToken;
+            return result;
+        }
+    }
+
     class MarkovChainIterator implements Iterator<String> {
         // stores the source of numbers that determine the path of ths walk
         private NumberGenerator ng;
-        private String currentToken;
+        private int currentToken;
         private boolean isFinished;
 
         // this (MarkovChainIterator) is an inner class
@@ -183,9 +716,8 @@ public class MarkovChain {
                 if (index < 0 || index >= startTokens.getTotal()) {
                     isFinished = true;
                 } else {
-                    currentToken = startTokens.pick(index);
-                    if (currentToken.equals(END_TOKEN) ||
-                            !bigramFrequencies.containsKey(currentToken)) {
+                    currentToken = vocabulary.id(startTokens.pick(index));
+                    if (currentToken == endId || row(currentToken) == null) {
                         isFinished = true;
                     } else {
                         isFinished = false;
@@ -213,6 +745,8 @@ public class MarkovChain {
         }
 
         /**
+         * Follows the walk by token ID; the word is only looked up in the
+         * vocabulary when it is returned.
          *
          * @return the next word in the MarkovChain's walk
          * @throws NoSuchElementException if there are no more words on the walk
@@ -227,8 +761,8 @@ public class MarkovChain {
             if (isFinished) {
                 throw new NoSuchElementException("End of chain reached.");
             }
-            String result = currentToken;
-            ProbabilityDistribution<String> distribution = bigramFrequencies.get(currentToken);
+            String result = vocabulary.word(currentToken);
+            IntProbabilityDistribution distribution = row(currentToken);
             if (distribution == null || distribution.getTotal() == 0) {
                 isFinished = true;
             } else {
@@ -237,7 +771,7 @@ public class MarkovChain {
                     throw new NoSuchElementException("Invalid number generator index.");
                 }
                 currentToken = distribution.pick(nextIndex);
-                if (currentToken.equals(END_TOKEN)) {
+                if (currentToken == endId) {
                     isFinished = true;
                 }
             }
@@ -249,24 +783,192 @@ public class MarkovChain {
      * Generate a list of numbers such that if it is installed as the
      * number generator for the MarkovChain, and used as an iterator,
      * the words returned in sequence will be the list of provided words.
+     * The list of words is not modified.
      */
     public List<Integer> findWalkChoices(List<String> words) {
         if (words == null || words.isEmpty()) {
             throw new IllegalArgumentException("Invalid empty or null words");
         }
-        words.add(END_TOKEN);
-        List<Integer> choices = new LinkedList<>();
-
-        String curWord = words.remove(0);
-        choices.add(startTokens.index(curWord));
+        int[] choices = new int[words.size() + 1];
+        choices[0] = startTokens.index(words.get(0));
+        encodeSteps(words, choices, 1);
+        List<Integer> result = new ArrayList<>(choices.length);
+        for (int choice : choices) {
+            result.add(choice);
+        }
+        return result;
+    }
 
-        while (words.size() > 0) {
-            ProbabilityDistribution<String> curDist = bigramFrequencies.get(curWord);
-            String nextWord = words.remove(0);
-            choices.add(curDist.index(nextWord));
+    /**
+     * Writes the choices that lead from each word of a walk to the next, and
+     * from the last word to {@code END_TOKEN}, to {@code out} starting at
+     * {@code position}. Takes a binary search per word.
+     *
+     * @throws IllegalArgumentException if some step of the walk is not in
+     *                                  the chain
+     */
+    private void encodeSteps(List<String> words, int[] out, int position) {
+        Iterator<String> it = words.iterator();
+        String curWord = it.next();
+        boolean more = true;
+        while (more) {
+            IntProbabilityDistribution curDist = row(vocabulary.id(curWord));
+            if (curDist == null) {
+                throw new IllegalArgumentException("word not in the chain: " + curWord);
+            }
+            more = it.hasNext();
+            String nextWord = more ? it.next() : END_TOKEN;
+            out[position++] = curDist.index(vocabulary.id(nextWord));
             curWord = nextWord;
         }
-        return choices;
+    }
+
+    /**
+     * @return the start tokens as a distribution of token IDs, in the same
+     *         pick order as {@code startTokens}
+     */
+    private IntProbabilityDistribution startDistribution() {
+        IntProbabilityDistribution starts = new IntProbabilityDistribution(wordOrder);
+        for (Map.Entry<String, Integer> e : startTokens.getRecords().entrySet()) {
+            starts.record(vocabulary.id(e.getKey()), e.getValue());
+        }
+        return starts;
+    }
+
+    /**
+     * Encodes a whole corpus as walk choices at once, like calling
+     * {@link #findWalkChoices} on each sentence but in time linear in the
+     * number of words (up to a binary search per word), and without
+     * modifying any sentence.
+     *
+     * @param sentences - the sentences to encode, each of which must be a
+     *                  walk through this chain
+     * @return the choices of each sentence, in order
+     * @throws IllegalArgumentException if sentences is null or contains a
+     *                                  null or empty sentence, or a sentence
+     *                                  that is not a walk through the chain
+     */
+    public EncodedWalks encodeWalks(List<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("Sentences cannot be null.");
+        }
+        int[] offsets = new int[sentences.size() + 1];
+        int i = 0;
+        for (List<String> words : sentences) {
+            if (words == null || words.isEmpty()) {
+                throw new IllegalArgumentException("Invalid empty or null words");
+            }
+            offsets[i + 1] = offsets[i] + words.size() + 1;
+            i++;
+        }
+
+        IntProbabilityDistribution starts = startDistribution();
+        int[] choices = new int[offsets[offsets.length - 1]];
+        i = 0;
+        for (List<String> words : sentences) {
+            int start = vocabulary.id(words.get(0));
+            if (start < 0 || starts.count(start) == 0) {
+                throw new IllegalArgumentException("element not in the distribution");
+            }
+            choices[offsets[i]] = starts.index(start);
+            encodeSteps(words, choices, offsets[i] + 1);
+            i++;
+        }
+        return new EncodedWalks(choices, offsets);
+    }
+
+    /**
+     * Decodes walks encoded by {@link #encodeWalks}, following each one
+     * through this chain exactly as {@link #getWalk} would. Takes a binary
+     * search per word.
+     *
+     * @param walks - the walks to decode
+     * @return the sentence of each walk, without {@code END_TOKEN}
+     * @throws IllegalArgumentException if walks is null, or if a walk has no
+     *                                  choices, or if the choices of a walk
+     *                                  are out of range or do not end exactly
+     *                                  when the walk does
+     */
+    public List<List<String>> decodeWalks(EncodedWalks walks) {
+        if (walks == null) {
+            throw new IllegalArgumentException("Walks cannot be null.");
+        }
+        IntProbabilityDistribution starts = startDistribution();
+        List<List<String>> sentences = new ArrayList<>(walks.size());
+        for (int w = 0; w < walks.size(); w++) {
+            int end = walks.end(w);
+            if (end == walks.start(w)) {
+                // even a walk of a single word needs the choice of END_TOKEN
+                throw new IllegalArgumentException("Walk " + w + " has no choices");
+            }
+            List<String> sentence = new ArrayList<>(end - walks.start(w) - 1);
+            IntProbabilityDistribution distribution = starts;
+            for (int position = walks.start(w); position < end; position++) {
+                int choice = walks.choice(position);
+                if (distribution == null || choice < 0 || choice >= distribution.getTotal()) {
+                    throw new IllegalArgumentException("Invalid choice for walk " + w);
+                }
+                int token = distribution.pick(choice);
+                if (token == endId) {
+                    distribution = null;
+                    if (position != end - 1) {
+                        throw new IllegalArgumentException("Walk " + w + " ends early");
+                    }
+                } else {
+                    sentence.add(vocabulary.word(token));
+                    distribution = row(token);
+                }
+            }
+            if (distribution != null) {
+                throw new IllegalArgumentException("Walk " + w + " does not end");
+            }
+            sentences.add(sentence);
+        }
+        return sentences;
+    }
+
+    /**
+     * Computes statistics about the size of this chain in a single pass over
+     * its distributions, without copying any of them. Unlike
+     * {@link #toString()}, this costs time linear in the number of tokens
+     * and no memory proportional to the model.
+     *
+     * @return the statistics of this chain as it is now
+     */
+    public ChainStats getStats() {
+        int rows = 0;
+        int edges = 0;
+        long bigrams = 0;
+        int maxOutDegree = 0;
+        int[] histogram = new int[32];
+        long rowBytes = ChainStats.objectBytes(12)
+                + ChainStats.arrayBytes(transitions.size(), 4);
+        long frozenBytes = 0;
+        for (int id = 0; id < transitions.size(); id++) {
+            IntProbabilityDistribution row = transitions.get(id);
+            if (row == null) {
+                continue;
+            }
+            rows++;
+            edges += row.size();
+            bigrams += row.getTotal();
+            maxOutDegree = Math.max(maxOutDegree, row.size());
+            histogram[31 - Integer.numberOfLeadingZeros(row.size())]++;
+            rowBytes += row.estimatedBytes();
+        }
+        if (frozenTransitions != null) {
+            frozenBytes = frozenStartTokens.estimatedBytes()
+                    + ChainStats.arrayBytes(frozenTransitions.length, 4);
+            for (AliasTable table : frozenTransitions) {
+                frozenBytes += table == null ? 0 : table.estimatedBytes();
+            }
+        }
+        int buckets = 32 - Integer.numberOfLeadingZeros(maxOutDegree);
+        return new ChainStats(
+                vocabulary.size(), startTokens.keySet().size(), startTokens.getTotal(), rows,
+                edges, bigrams, maxOutDegree, Arrays.copyOf(histogram, buckets),
+                vocabulary.estimatedBytes(), startTokens.estimatedBytes(), rowBytes, frozenBytes
+        );
     }
 
     /**
@@ -0,0 +1,313 @@
+package org.cis1200;
+
+import java.util.*;
+
+/**
+ * A Markov chain of configurable order {@code k} between 2 and 5: each token
+ * is chosen based on the {@code k - 1} tokens before it (or on all of the
+ * tokens so far, near the start of a sentence). An order 2 chain is the same
+ * bigram model as {@link MarkovChain}, and gives the same walks.
+ * <p>
+ * Contexts are never stored as lists of words. Each context gets a dense int
+ * ID, and a context is identified by the pair (ID of the context without its
+ * last token, ID of its last token), packed into one {@code long} key of a
+ * {@link LongIntHashMap}. The empty context, whose successors are the start
+ * tokens of sentences, has ID 0. So a context of any length costs one hash
+ * entry, whatever the vocabulary size, plus a distribution of successor IDs
+ * once some token was recorded after it. Contexts that only exist as the
+ * prefix of a longer context, which at order 5 is about half of them, have
+ * no distribution.
+ */
+public class NGramMarkovChain {
+
+    static final int MIN_ORDER = 2;
+    static final int MAX_ORDER = 5;
+
+    /** ID of the empty context */
+    private static final int ROOT = 0;
+
+    private final int order;
+    private final Vocabulary vocabulary;
+    private final int endId;
+    private final IntProbabilityDistribution.KeyOrder wordOrder;
+
+    /** maps (parent context ID, token ID) to the ID of the extended context */
+    private final LongIntHashMap contexts;
+
+    /**
+     * successors.get(c) is the distribution of tokens following context c, or
+     * null if no token was recorded after c yet
+     */
+    private final ArrayList<IntProbabilityDistribution> successors;
+
+    /**
+     * Construct an empty chain of the given order.
+     *
+     * @param order - the number of tokens in each n-gram, between 2 and 5
+     * @throws IllegalArgumentException if order is out of range
+     */
+    public NGramMarkovChain(int order) {
+        this(order, new Vocabulary());
+    }
+
+    /**
+     * Construct an empty chain of the given order that interns its tokens in
+     * the given vocabulary.
+     *
+     * @param order      - the number of tokens in each n-gram, between 2 and 5
+     * @param vocabulary - the vocabulary to intern tokens in
+     * @throws IllegalArgumentException if order is out of range or vocabulary
+     *                                  is null
+     */
+    public NGramMarkovChain(int order, Vocabulary vocabulary) {
+        if (order < MIN_ORDER || order > MAX_ORDER) {
+            throw new IllegalArgumentException(
+                    "Order must be between " + MIN_ORDER + " and " + MAX_ORDER
+            );
+        }
+        if (vocabulary == null) {
+            throw new IllegalArgumentException("Vocabulary cannot be null.");
+        }
+        this.order = order;
+        this.vocabulary = vocabulary;
+        this.endId = vocabulary.intern(MarkovChain.END_TOKEN);
+        this.wordOrder = vocabulary::compare;
+        this.contexts = new LongIntHashMap();
+        this.successors = new ArrayList<>();
+        successors.add(new IntProbabilityDistribution(wordOrder));
+    }
+
+    /**
+     * @return the order of the chain
+     */
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the number of distinct contexts, including the empty context
+     */
+    public int contextCount() {
+        return successors.size();
+    }
+
+    /**
+     * @return the key of a context extended by one token
+     */
+    private static long key(int context, int token) {
+        return ((long) context << 32) | (token & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the ID of the context extended by token, or -1 if that context
+     *         has never been seen
+     */
+    private int child(int context, int token) {
+        return contexts.get(key(context, token), -1);
+    }
+
+    /**
+     * @return the ID of the context extended by token, creating it if needed
+     */
+    private int childFor(int context, int token) {
+        long key = key(context, token);
+        int child = contexts.get(key, -1);
+        if (child < 0) {
+            child = successors.size();
+            contexts.put(key, child);
+            successors.add(null);
+        }
+        return child;
+    }
+
+    /**
+     * @return the distribution of tokens following context, creating it if
+     *         needed
+     */
+    private IntProbabilityDistribution successorsFor(int context) {
+        IntProbabilityDistribution pd = successors.get(context);
+        if (pd == null) {
+            pd = new IntProbabilityDistribution(wordOrder);
+            successors.set(context, pd);
+        }
+        return pd;
+    }
+
+    /**
+     * Finds the context made of the last {@code length} tokens in a ring
+     * buffer of recent tokens.
+     *
+     * @param recent - ring buffer of the last tokens, of length order - 1
+     * @param next   - the position in recent after the most recent token
+     * @param length - the number of tokens in the context
+     * @param create - whether to create contexts that do not exist yet
+     * @return the ID of that context, or -1 if it does not exist
+     */
+    private int contextOf(int[] recent, int next, int length, boolean create) {
+        int context = ROOT;
+        for (int i = length; i > 0 && context >= 0; i--) {
+            int token = recent[Math.floorMod(next - i, recent.length)];
+            context = create ? childFor(context, token) : child(context, token);
+        }
+        return context;
+    }
+
+    /**
+     * Adds a single sentence to the chain: its first token is recorded after
+     * the empty context, each later token after the (up to order - 1) tokens
+     * before it, and {@code END_TOKEN} after the last tokens. Does nothing if
+     * the sentence is empty or starts with {@code END_TOKEN}.
+     *
+     * @param sentence an iterator representing one sentence of training data
+     * @throws IllegalArgumentException when the iterator or a token is null
+     */
+    public void addSequence(Iterator<String> sentence) {
+        if (sentence == null) {
+            throw new IllegalArgumentException("Sentence iterator cannot be null.");
+        }
+        if (!sentence.hasNext()) {
+            return;
+        }
+        int token = vocabulary.intern(sentence.next());
+        if (token == endId) {
+            return;
+        }
+        int[] recent = new int[order - 1];
+        int next = 0;
+        int length = 0;
+        int context = ROOT;
+        while (true) {
+            successorsFor(context).record(token);
+            if (token == endId) {
+                return;
+            }
+            recent[next] = token;
+            next = (next + 1) % recent.length;
+            if (length < recent.length) {
+                length++;
+                context = childFor(context, token);
+            } else {
+                context = contextOf(recent, next, length, true);
+            }
+            token = sentence.hasNext() ? vocabulary.intern(sentence.next()) : endId;
+        }
+    }
+
+    /**
+     * Trains the chain on sentences as they are produced.
+     *
+     * @param sentences - the input sequences of tokens
+     * @throws IllegalArgumentException when sentences is null
+     */
+    public void train(Iterator<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("Sentences cannot be null.");
+        }
+        while (sentences.hasNext()) {
+            addSequence(sentences.next().iterator());
+        }
+    }
+
+    /**
+     * Returns a copy of the distribution of tokens following a context. A
+     * context has order - 1 tokens, or fewer if it is the start of a sentence;
+     * the empty context gives the distribution of start tokens.
+     *
+     * @param context - the tokens of the context, oldest first
+     * @return a ProbabilityDistribution, or null if the context was never seen
+     * @throws IllegalArgumentException when context is null or too long
+     */
+    ProbabilityDistribution<String> get(List<String> context) {
+        if (context == null || context.size() >= order) {
+            throw new IllegalArgumentException("Context must have fewer than order tokens.");
+        }
+        int c = ROOT;
+        for (String word : context) {
+            c = c < 0 ? c : child(c, vocabulary.id(word));
+        }
+        if (c < 0) {
+            return null;
+        }
+        IntProbabilityDistribution row = successors.get(c);
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        for (int i = 0; row != null && i < row.size(); i++) {
+            pd.record(vocabulary.word(row.keyAt(i)), row.countAt(i));
+        }
+        return pd;
+    }
+
+    /**
+     * Gets a walk through the chain that follows the path given by the
+     * {@code NumberGenerator}, with the same contract as
+     * {@link MarkovChain#getWalk}.
+     *
+     * @param ng the path to follow
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getWalk(NumberGenerator ng) {
+        return new NGramIterator(ng);
+    }
+
+    /**
+     * Gets a random walk through the chain.
+     *
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getRandomWalk() {
+        return getWalk(new RandomNumberGenerator());
+    }
+
+    class NGramIterator implements Iterator<String> {
+        private final NumberGenerator ng;
+        // ring buffer of the last order - 1 tokens of the walk
+        private final int[] recent = new int[order - 1];
+        private int next = 0;
+        private int length = 0;
+        // the token next() will return, or -1 once the walk is finished
+        private int currentToken = -1;
+
+        NGramIterator(NumberGenerator ng) {
+            this.ng = ng;
+            IntProbabilityDistribution starts = successors.get(ROOT);
+            if (starts.getTotal() > 0) {
+                int index = ng.next(starts.getTotal());
+                if (index >= 0 && index < starts.getTotal()) {
+                    int start = starts.pick(index);
+                    if (start != endId && child(ROOT, start) >= 0) {
+                        currentToken = start;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentToken >= 0;
+        }
+
+        @Override
+        public String next() {
+            if (currentToken < 0) {
+                throw new NoSuchElementException("End of chain reached.");
+            }
+            String result = vocabulary.word(currentToken);
+            recent[next] = currentToken;
+            next = (next + 1) % recent.length;
+            length = Math.min(length + 1, recent.length);
+            int context = contextOf(recent, next, length, false);
+            IntProbabilityDistribution distribution = context < 0 ? null
+                    : successors.get(context);
+            if (distribution == null || distribution.getTotal() == 0) {
+                currentToken = -1;
+            } else {
+                int nextIndex = ng.next(distribution.getTotal());
+                if (nextIndex < 0 || nextIndex >= distribution.getTotal()) {
+                    throw new NoSuchElementException("Invalid number generator index.");
+                }
+                int nextToken = distribution.pick(nextIndex);
+                currentToken = nextToken == endId ? -1 : nextToken;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A Markov chain that keeps training while other threads generate from it.
+ * <p>
+ * Writers only append each sentence to a buffer, under a lock that is held
+ * for no longer than that. Readers walk the most recently published
+ * {@link CompiledMarkovChain}, which is immutable, so a walk never waits for
+ * a writer and is never affected by one; walks that already started keep
+ * using the snapshot they started on.
+ * <p>
+ * After every {@code publishEvery} sentences, the writer that added the last
+ * of them publishes: it takes the whole buffer, trains it into a private
+ * {@link MarkovChain}, compiles that and swaps the new snapshot in
+ * atomically. Training and compiling take time proportional to the model,
+ * so they happen outside of the buffer's lock, and other writers keep adding
+ * sentences meanwhile. Publishes run one at a time; one that has to wait for
+ * another takes up every sentence buffered in the meantime, so publishes
+ * that fall behind are coalesced rather than queued.
+ */
+public class OnlineMarkovChain {
+
+    // guarded by itself; only publishes touch it
+    private final MarkovChain chain;
+    private final int publishEvery;
+    // the sentences added since the last publish took up the buffer,
+    // guarded by buffer; a publish takes buffer after chain
+    private final Object buffer = new Object();
+    private List<List<String>> pending = new ArrayList<>();
+
+    private final AtomicReference<CompiledMarkovChain> published;
+
+    /**
+     * Construct an empty chain that publishes a new snapshot after every
+     * {@code publishEvery} sentences.
+     *
+     * @param publishEvery - the number of sentences between snapshots
+     * @throws IllegalArgumentException if publishEvery is not positive
+     */
+    public OnlineMarkovChain(int publishEvery) {
+        if (publishEvery <= 0) {
+            throw new IllegalArgumentException("publishEvery must be positive.");
+        }
+        this.chain = new MarkovChain();
+        this.publishEvery = publishEvery;
+        this.published = new AtomicReference<>(chain.compile());
+    }
+
+    /**
+     * @return the number of sentences between snapshots
+     */
+    public int getPublishEvery() {
+        return publishEvery;
+    }
+
+    /**
+     * Adds a single sentence to the chain, see
+     * {@link MarkovChain#addSequence}. Readers see it once the next snapshot
+     * is published. Safe to call from any number of threads.
+     *
+     * @param sentence an iterator representing one sentence of training data
+     * @throws IllegalArgumentException when the iterator or a token is null
+     */
+    public void addSequence(Iterator<String> sentence) {
+        if (sentence == null) {
+            throw new IllegalArgumentException("Tweet iterator cannot be null.");
+        }
+        List<String> tokens = new ArrayList<>();
+        while (sentence.hasNext()) {
+            String token = sentence.next();
+            if (token == null) {
+                throw new IllegalArgumentException("Cannot intern a null token.");
+            }
+            tokens.add(token);
+        }
+        boolean due;
+        synchronized (buffer) {
+            pending.add(tokens);
+            due = pending.size() == publishEvery;
+        }
+        if (due) {
+            publish();
+        }
+    }
+
+    /**
+     * Adds each of the sentences in turn, see {@link #addSequence}.
+     *
+     * @param sentences - the input sequences of tokens
+     * @throws IllegalArgumentException when sentences is null
+     */
+    public void train(Iterator<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("Sentences cannot be null.");
+        }
+        while (sentences.hasNext()) {
+            addSequence(sentences.next().iterator());
+        }
+    }
+
+    /**
+     * Publishes a snapshot of everything trained so far, without waiting for
+     * the next {@code publishEvery} sentences.
+     */
+    public void publish() {
+        synchronized (chain) {
+            List<List<String>> sentences;
+            synchronized (buffer) {
+                sentences = pending;
+                pending = new ArrayList<>();
+            }
+            chain.train(sentences.iterator());
+            published.set(chain.compile());
+        }
+    }
+
+    /**
+     * @return the number of sentences added that no publish has taken up yet
+     */
+    public int pendingSequences() {
+        synchronized (buffer) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return the snapshot that walks currently use
+     */
+    public CompiledMarkovChain snapshot() {
+        return published.get();
+    }
+
+    /**
+     * Gets a walk through the current snapshot that follows the path given
+     * by the {@code NumberGenerator}, with the same contract as
+     * {@link MarkovChain#getWalk}.
+     *
+     * @param ng the path to follow
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getWalk(NumberGenerator ng) {
+        return published.get().getWalk(ng);
+    }
+
+    /**
+     * Gets a random walk through the current snapshot.
+     *
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getRandomWalk() {
+        return published.get().getRandomWalk();
+    }
+}
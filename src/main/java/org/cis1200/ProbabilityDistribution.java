@@ -2,18 +2,157 @@ package org.cis1200;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.UnaryOperator;
 
+/**
+ * Counts occurrences of elements and picks them in proportion to their
+ * counts. Elements are picked, and iterated over, in their natural (sorted)
+ * order.
+ * <p>
+ * Counts are kept in a hash table, so recording costs one hash lookup rather
+ * than a walk down a sorted tree. {@code pick} and {@code index} use the pick
+ * order: the sorted elements with a binary indexed (Fenwick) tree over their
+ * counts, which {@link #seal()} builds (as {@link MarkovChain#freeze()} and
+ * {@link MarkovChain#compile()} do), and otherwise the first read after a new
+ * element was recorded does. Once it is built, recording an element that is
+ * already present updates the tree in O(log n), so record, pick and index
+ * stay O(log n) while the distribution is trained and sampled in turn. A new
+ * element is inserted into the sorted elements in O(n) if the distribution
+ * was read since it last changed, and the tree is rebuilt in O(n) on the
+ * next read.
+ * <p>
+ * Reads never modify the pick order once it is built, so any number of
+ * threads may read a distribution at once, as long as none of them records
+ * to it at the same time.
+ */
 class ProbabilityDistribution<T extends Comparable<T>> {
 
     // association between keys and number of occurrences
-    // store in a TreeMap so that the entries can be accessed in sorted order
     // INVARIANT: keys are never null, values are > 0
-    private final TreeMap<T, Integer> records;
+    private final HashMap<T, Integer> records;
     // INVARIANT: total is sum of all values stored in records
-    private Integer total = 0;
+    private int total = 0;
+
+    /**
+     * The pick order of a distribution: its keys in sorted order, and a
+     * Fenwick tree over their counts. Only record changes the tree, and only
+     * the counts of keys that were already present.
+     */
+    private static final class Order<T> {
+        // unmodifiable
+        final List<T> keys;
+        // 1-based Fenwick tree: tree[i] is the sum of the counts of
+        // keys[i - lowbit(i) .. i)
+        final int[] tree;
+
+        Order(List<T> keys, int[] tree) {
+            this.keys = keys;
+            this.tree = tree;
+        }
+    }
+
+    // the pick order of the current counts, or null if elements were added
+    // or removed, or counts merged or subtracted, since it was built
+    private volatile Order<T> order = null;
+    // the keys of records in sorted order, or null if keys were added or
+    // removed since they were last sorted
+    private List<T> sorted = null;
 
     public ProbabilityDistribution() {
-        this.records = new TreeMap<>();
+        this.records = new HashMap<>();
+    }
+
+    /**
+     * Sorts the keys and builds the Fenwick tree now rather than on the next
+     * read, so that reads only look them up.
+     */
+    public void seal() {
+        order();
+    }
+
+    /**
+     * @return the pick order of the current counts, built in O(n) and
+     *         published if it was discarded since it was last built. Threads
+     *         that read at the same time may each build an equal order.
+     */
+    private Order<T> order() {
+        Order<T> current = order;
+        if (current == null) {
+            List<T> keys = sorted;
+            if (keys == null) {
+                List<T> copy = new ArrayList<>(records.keySet());
+                Collections.sort(copy);
+                keys = Collections.unmodifiableList(copy);
+            }
+            int size = keys.size();
+            int[] tree = new int[size + 1];
+            for (int i = 1; i <= size; i++) {
+                tree[i] += records.get(keys.get(i - 1));
+                int parent = i + (i & -i);
+                if (parent <= size) {
+                    tree[parent] += tree[i];
+                }
+            }
+            current = new Order<>(keys, tree);
+            order = current;
+        }
+        return current;
+    }
+
+    /**
+     * Adds delta to the count of t, which was already present, in the pick
+     * order if it is built.
+     */
+    private void countChanged(T t, int delta) {
+        Order<T> current = order;
+        if (current != null) {
+            int[] tree = current.tree;
+            for (int i = Collections.binarySearch(current.keys, t) + 1; i < tree.length;
+                    i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+    }
+
+    /**
+     * Discards the pick order after t was recorded for the first time. If the
+     * order was built, i.e. the distribution was read since it last changed,
+     * t is inserted into its sorted keys; otherwise they are sorted again on
+     * the next read.
+     */
+    private void keyAdded(T t) {
+        Order<T> current = order;
+        order = null;
+        if (current == null) {
+            sorted = null;
+            return;
+        }
+        List<T> keys = current.keys;
+        List<T> inserted = new ArrayList<>(keys.size() + 1);
+        inserted.addAll(keys);
+        inserted.add(-(Collections.binarySearch(keys, t) + 1), t);
+        sorted = Collections.unmodifiableList(inserted);
+    }
+
+    /**
+     * Discards the pick order after counts were merged or subtracted, keeping
+     * the sorted keys if they are known.
+     */
+    private void countsChanged() {
+        Order<T> current = order;
+        if (current != null) {
+            sorted = current.keys;
+            order = null;
+        }
+    }
+
+    /**
+     * Discards the pick order and the sorted keys after keys were added or
+     * removed.
+     */
+    private void keysChanged() {
+        sorted = null;
+        order = null;
     }
 
     /**
@@ -35,11 +174,16 @@ class ProbabilityDistribution<T extends Comparable<T>> {
     }
 
     /**
-     * @return a copy of the ProbabilityDistribution's internal Map
+     * @return a copy of the ProbabilityDistribution's internal Map, sorted by
+     *         element
      */
     public Map<T, Integer> getRecords() {
         // Copy constructor so records cannot be modified externally.
-        return new TreeMap<>(records);
+        Map<T, Integer> copy = new LinkedHashMap<>();
+        for (T key : order().keys) {
+            copy.put(key, records.get(key));
+        }
+        return copy;
     }
 
     /**
@@ -78,34 +222,123 @@ class ProbabilityDistribution<T extends Comparable<T>> {
                             "equal to the total " + "number of records in the PD"
             );
         }
-        int currentIndex = 0;
-        // go through the keys in order, summing their occurrences until we
-        // reach the weighted key
-        for (Map.Entry<T, Integer> entry : records.entrySet()) {
-            T key = entry.getKey();
-            int currentCount = entry.getValue();
-            if (currentIndex + currentCount > index) {
-                return key;
+        Order<T> current = order();
+        int[] tree = current.tree;
+        int size = tree.length - 1;
+        int position = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= size && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
             }
-            currentIndex += currentCount;
         }
-        throw new IllegalStateException(
-                "Error in ProbabilityDistribution. Make " +
-                        "sure to only add new " + "records through " + "record()"
-        );
+        return current.keys.get(position);
     }
 
     /**
      * Add an instance to the ProbabilityDistribution. If the element already
      * exists in the ProbabilityDistribution, it will increment the number of
-     * occurrences of that element.
+     * occurrences of that element in O(log n).
      *
      * @param t - an element to add to the distribution
      * @throws IllegalArgumentException when t is null
      */
     public void record(T t) {
-        records.put(t, records.getOrDefault(t, 0) + 1);
-        total++;
+        record(t, 1);
+    }
+
+    /**
+     * Add several instances of the same element to the ProbabilityDistribution
+     * at once, as if record() had been called count times.
+     *
+     * @param t     - an element to add to the distribution
+     * @param count - the number of instances to add
+     * @throws IllegalArgumentException when t is null or count is not positive
+     */
+    public void record(T t, int count) {
+        if (t == null || count <= 0) {
+            throw new IllegalArgumentException(
+                    "Element must be non-null and count must be positive."
+            );
+        }
+        total += count;
+        if (records.merge(t, count, Integer::sum) == count) {
+            keyAdded(t);
+        } else {
+            countChanged(t, count);
+        }
+    }
+
+    /**
+     * Adds every count of another ProbabilityDistribution to this one, with
+     * one map update per distinct element rather than one per record. The
+     * other distribution is not modified.
+     *
+     * @param other     - the distribution whose counts are added
+     * @param canonical - maps each element of other to the instance that should
+     *                  be stored here, e.g. an interned String
+     */
+    public void merge(ProbabilityDistribution<T> other, UnaryOperator<T> canonical) {
+        countsChanged();
+        for (Entry<T, Integer> r : other.records.entrySet()) {
+            if (records.merge(canonical.apply(r.getKey()), r.getValue(), Integer::sum)
+                    .equals(r.getValue())) {
+                keysChanged();
+            }
+        }
+        total += other.total;
+    }
+
+    /**
+     * Removes every count of another ProbabilityDistribution from this one,
+     * undoing a {@link #merge} of it. Elements whose count drops to zero are
+     * removed entirely. The other distribution is not modified.
+     *
+     * @param other - the distribution whose counts are removed
+     * @throws IllegalArgumentException if some element occurs more often in
+     *                                  other than here; nothing is removed
+     */
+    public void subtract(ProbabilityDistribution<T> other) {
+        for (Entry<T, Integer> r : other.records.entrySet()) {
+            if (count(r.getKey()) < r.getValue()) {
+                throw new IllegalArgumentException(
+                        "Cannot remove more instances of " + r.getKey() + " than were recorded."
+                );
+            }
+        }
+        countsChanged();
+        for (Entry<T, Integer> r : other.records.entrySet()) {
+            int removed = r.getValue();
+            if (records.computeIfPresent(r.getKey(), (t, c) -> c == removed ? null : c - removed)
+                    == null) {
+                keysChanged();
+            }
+        }
+        total -= other.total;
+    }
+
+    /**
+     * Estimates the bytes retained by this distribution: the distribution,
+     * its HashMap with its table, an entry and a boxed count per element, and
+     * the pick order with its sorted keys and Fenwick tree (counted
+     * whether or not it is currently built, so the estimate does not change
+     * when the chain is used). The elements themselves are not counted. See
+     * {@link ChainStats}.
+     *
+     * @return the estimated number of bytes
+     */
+    long estimatedBytes() {
+        int size = records.size();
+        // the table of a HashMap is at least size / 0.75, rounded up to a
+        // power of two
+        int table = size == 0 ? 0 : Integer.highestOneBit(Math.max(1, size * 4 / 3) * 2 - 1);
+        return ChainStats.objectBytes(24) + ChainStats.objectBytes(32)
+                + ChainStats.arrayBytes(table, 4)
+                + size * (ChainStats.objectBytes(16) + ChainStats.objectBytes(4))
+                + ChainStats.objectBytes(8) + ChainStats.objectBytes(8)
+                + ChainStats.arrayBytes(size, 4) + ChainStats.arrayBytes(size + 1, 4);
     }
 
     /**
@@ -122,11 +355,27 @@ class ProbabilityDistribution<T extends Comparable<T>> {
     }
 
     /**
-     * @return a set containing all elements in the
-     *         ProbabilityDistribution
+     * @return a read-only view of all elements in the
+     *         ProbabilityDistribution, which iterates over them in sorted
+     *         order
      */
     public Set<T> keySet() {
-        return records.keySet();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return order().keys.iterator();
+            }
+
+            @Override
+            public int size() {
+                return records.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return records.containsKey(o);
+            }
+        };
     }
 
     /**
@@ -139,16 +388,16 @@ class ProbabilityDistribution<T extends Comparable<T>> {
      *                                  distribution
      */
     public int index(T element) {
-        int currentIndex = 0;
-        for (Map.Entry<T, Integer> entry : records.entrySet()) {
-            T key = entry.getKey();
-            int currentCount = entry.getValue();
-            if (key.equals(element)) {
-                return currentIndex;
-            }
-            currentIndex += currentCount;
+        if (element == null || !records.containsKey(element)) {
+            throw new IllegalArgumentException("element not in the distribution");
+        }
+        Order<T> current = order();
+        int[] tree = current.tree;
+        int index = 0;
+        for (int i = Collections.binarySearch(current.keys, element); i > 0; i -= i & -i) {
+            index += tree[i];
         }
-        throw new IllegalArgumentException("element not in the distribution");
+        return index;
     }
 
     /**
@@ -157,11 +406,11 @@ class ProbabilityDistribution<T extends Comparable<T>> {
     @Override
     public String toString() {
         StringBuilder res = new StringBuilder();
-        for (Entry<T, Integer> r : records.entrySet()) {
+        for (T key : order().keys) {
             res.append("Frequency of ");
-            res.append(r.getKey());
+            res.append(key);
             res.append(": ");
-            res.append(r.getValue());
+            res.append(records.get(key));
         }
         return res.toString();
     }
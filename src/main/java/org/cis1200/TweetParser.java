@@ -1,8 +1,17 @@
 package org.cis1200;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.io.BufferedReader;
+import java.io.IOException;
 
 public class TweetParser {
 
@@ -91,16 +100,26 @@ public class TweetParser {
      *         If the csvLine is null or has no appropriate csvColumn, return null
      */
     static String extractColumn(String csvLine, int csvColumn) {
-        return null; // Complete this method.
+        if (csvLine == null || csvColumn < 0) {
+            return null;
+        }
+        String[] columns = csvLine.split(",");
+        if (csvColumn >= columns.length) {
+            return null;
+        }
+        return columns[csvColumn];
     }
 
     /**
-     * Given a buffered reader and the column that the tweets are in,
-     * use the extractColumn and a FileLineIterator to extract every tweet from
-     * the reader. (Recall that extractColumn returns null if there is no data
-     * at that column.) You should skip lines in the reader for which the
+     * Given a buffered reader and the column that the tweets are in, extract
+     * every tweet from the reader. You should skip records for which the
      * tweetColumn is out of bounds. You should return an empty list if
      * the column is out of bounds or if there are no tweets. Do not return null.
+     * <p>
+     * The reader is parsed as RFC 4180 CSV by a {@link CsvColumnIterator}, so
+     * quoted tweets may contain commas, escaped quotes and line breaks. The
+     * reader is closed once every tweet is read, or right away if the column
+     * is negative.
      *
      * @param br          - a BufferedReader that represents tweets
      * @param tweetColumn - the number of the column in the buffered reader
@@ -109,7 +128,13 @@ public class TweetParser {
      *         yet cleaned)
      */
     static List<String> csvDataToTweets(BufferedReader br, int tweetColumn) {
-        return null; // Complete this method.
+        List<String> tweets = new LinkedList<>();
+        if (tweetColumn < 0) {
+            close(br);
+            return tweets;
+        }
+        new CsvColumnIterator(br, tweetColumn).forEachRemaining(tweets::add);
+        return tweets;
     }
 
     /**
@@ -146,7 +171,14 @@ public class TweetParser {
      *         sentence. Any "bad" words are just dropped.
      */
     static List<String> parseAndCleanSentence(String sentence) {
-        return null; // Complete this method.
+        List<String> words = new LinkedList<>();
+        for (String word : sentence.split(" ")) {
+            String cleaned = cleanWord(word);
+            if (cleaned != null) {
+                words.add(cleaned);
+            }
+        }
+        return words;
     }
 
     /**
@@ -179,7 +211,14 @@ public class TweetParser {
      *         sequence of clean words drawn from the tweet.
      */
     static List<List<String>> parseAndCleanTweet(String tweet) {
-        return null; // Complete this method.
+        List<List<String>> sentences = new LinkedList<>();
+        for (String sentence : tweetSplit(removeURLs(tweet))) {
+            List<String> words = parseAndCleanSentence(sentence);
+            if (!words.isEmpty()) {
+                sentences.add(words);
+            }
+        }
+        return sentences;
     }
 
     /**
@@ -190,6 +229,10 @@ public class TweetParser {
      * and stripping out punctuation. Note that empty sentences are not added to
      * the final list of training data examples. Return an empty list if there are
      * not sentences to be added. Do not return null.
+     * <p>
+     * Tweets are split by {@link TweetTokenizer}, which gives the same
+     * sentences as parseAndCleanTweet in a single pass and without regular
+     * expressions.
      *
      * @param br          - a BufferedReader that contains the tweets
      * @param tweetColumn - the number of the column in the buffered reader that
@@ -200,7 +243,185 @@ public class TweetParser {
             BufferedReader br,
             int tweetColumn
     ) {
-        return null; // Complete this method
+        List<List<String>> trainingData = new LinkedList<>();
+        for (String tweet : csvDataToTweets(br, tweetColumn)) {
+            trainingData.addAll(TweetTokenizer.tokenize(tweet));
+        }
+        return trainingData;
+    }
+
+    /**
+     * Lazily computes the same training data as csvDataToTrainingData. Records
+     * are read from the reader only as sentences are requested, so neither the
+     * raw tweets nor the parsed sentences are ever held in memory together;
+     * each sentence can be garbage collected as soon as the caller is done
+     * with it. The reader is closed once it is exhausted, or right away if the
+     * column is negative.
+     *
+     * @param br          - a BufferedReader that contains the tweets
+     * @param tweetColumn - the number of the column in the buffered reader that
+     *                    contains the tweet
+     * @return an iterator over the (non-empty) sentences of the training data
+     */
+    public static Iterator<List<String>> csvDataToSentences(
+            BufferedReader br,
+            int tweetColumn
+    ) {
+        if (tweetColumn < 0) {
+            close(br);
+            return Collections.emptyIterator();
+        }
+        return Spliterators.iterator(
+                new SentenceSpliterator(new CsvColumnIterator(br, tweetColumn))
+        );
+    }
+
+    /**
+     * Lazily streams the tweets in one column of the reader, like
+     * csvDataToTweets but without building a list. Records are read only as
+     * the stream consumes them, and closing the stream closes the reader.
+     * The stream can be made parallel, in which case batches of tweets are
+     * handed to other threads as they are read.
+     *
+     * @param br          - a BufferedReader that represents tweets
+     * @param tweetColumn - the number of the column in the buffered reader
+     *                    that contains the tweet
+     * @return a sequential stream of tweet Strings, none of which are null
+     */
+    public static Stream<String> csvDataToTweetStream(BufferedReader br, int tweetColumn) {
+        if (tweetColumn < 0) {
+            return Stream.<String>empty().onClose(() -> close(br));
+        }
+        Spliterator<String> tweets = Spliterators.spliteratorUnknownSize(
+                new CsvColumnIterator(br, tweetColumn), Spliterator.ORDERED | Spliterator.NONNULL
+        );
+        return StreamSupport.stream(tweets, false).onClose(() -> close(br));
+    }
+
+    /**
+     * Lazily streams the same training data as csvDataToTrainingData, so that
+     * callers can filter it and train on it without ever holding the corpus
+     * in memory. Records are read and parsed only as the stream consumes
+     * them, and closing the stream closes the reader.
+     * <p>
+     * The stream can be made parallel: it then splits off batches of raw
+     * tweets, which other threads parse and process, while the reader itself
+     * is only read by one thread at a time. The sentences keep their order
+     * unless the stream is made unordered.
+     *
+     * @param br          - a BufferedReader that contains the tweets
+     * @param tweetColumn - the number of the column in the buffered reader that
+     *                    contains the tweet
+     * @return a sequential stream of the (non-empty) sentences of the training
+     *         data
+     */
+    public static Stream<List<String>> csvDataToTrainingDataStream(
+            BufferedReader br,
+            int tweetColumn
+    ) {
+        if (tweetColumn < 0) {
+            return Stream.<List<String>>empty().onClose(() -> close(br));
+        }
+        SentenceSpliterator sentences =
+                new SentenceSpliterator(new CsvColumnIterator(br, tweetColumn));
+        return StreamSupport.stream(sentences, false).onClose(() -> close(br));
     }
 
+    /**
+     * Closes a reader that the caller will not read to the end.
+     *
+     * @param br - the reader to close
+     * @throws RuntimeException if closing fails
+     */
+    static void close(BufferedReader br) {
+        try {
+            br.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close BufferedReader: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Splits tweets into sentences one tweet at a time, handing out the
+     * sentences of a tweet before taking the next one. For parallel streams,
+     * {@link #trySplit()} takes the next batch of raw tweets (and the
+     * remaining sentences of the current one) off the iterator, leaving the
+     * parsing to whichever thread processes the split.
+     */
+    static class SentenceSpliterator implements Spliterator<List<String>> {
+        // the number of tweets split off at a time
+        static final int BATCH_SIZE = 1024;
+
+        private final Iterator<String> tweets;
+        private long estimate;
+        // the sentences of the current tweet; those from next on have not
+        // been handed out yet
+        private List<List<String>> pending;
+        private int next;
+
+        SentenceSpliterator(Iterator<String> tweets) {
+            this(tweets, Long.MAX_VALUE, Collections.emptyList());
+        }
+
+        private SentenceSpliterator(
+                Iterator<String> tweets, long estimate, List<List<String>> pending
+        ) {
+            this.tweets = tweets;
+            this.estimate = estimate;
+            this.pending = pending;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<String>> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            while (next == pending.size()) {
+                if (!tweets.hasNext()) {
+                    return false;
+                }
+                pending = TweetTokenizer.tokenize(tweets.next());
+                next = 0;
+            }
+            action.accept(pending.get(next++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<List<String>> trySplit() {
+            if (!tweets.hasNext()) {
+                return null;
+            }
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            while (batch.size() < BATCH_SIZE && tweets.hasNext()) {
+                batch.add(tweets.next());
+            }
+            // the split comes first, so it takes what is left of the
+            // current tweet too
+            List<List<String>> rest = pending.subList(next, pending.size());
+            pending = Collections.emptyList();
+            next = 0;
+            if (estimate != Long.MAX_VALUE) {
+                estimate = Math.max(0, estimate - batch.size() - rest.size());
+            }
+            return new SentenceSpliterator(
+                    batch.iterator(), batch.size() + rest.size(), rest
+            );
+        }
+
+        /**
+         * @return for a split batch, its number of tweets plus the sentences
+         *         it was handed, as most tweets hold one sentence; otherwise
+         *         Long.MAX_VALUE, as the size of the input is unknown
+         */
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
 }
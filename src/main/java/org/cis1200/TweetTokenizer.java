@@ -0,0 +1,390 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a tweet into sentences of clean words in a single scan over its
+ * characters, producing exactly the same sentences as
+ * {@link TweetParser#parseAndCleanTweet} without any regular expressions.
+ * <p>
+ * {@code parseAndCleanTweet} removes URLs with three {@code replaceAll}s,
+ * replaces punctuation with four more passes, splits with a regex, and
+ * matches every word against a regex that is compiled on each call. This
+ * class does all of that in one loop:
+ * <ul>
+ * <li>A URL is the rest of a run of non-whitespace characters from the first
+ * {@code http} that starts a word. It is dropped, but if the run ends in a
+ * period that period is kept, just like {@code removeURLs}.</li>
+ * <li>{@code . ? ! ;} end a sentence, spaces end a word, and each word is
+ * trimmed, lowercased and checked for non-word characters as in
+ * {@code cleanWord}.</li>
+ * </ul>
+ * Use {@link #tokenize(String)} to get the sentences as lists of Strings.
+ * <p>
+ * A tokenizer constructed with a {@link Vocabulary} instead emits the token
+ * IDs of the words, see {@link #tokenizeIds(String)}. Words are lowercased
+ * in place and looked up in the vocabulary straight from the character
+ * buffer, so a String is only created for a word the vocabulary has never
+ * seen (or, rarely, for a word whose lowercasing needs the full
+ * {@link String#toLowerCase()}). Such a tokenizer can be reused for any
+ * number of tweets, but not by several threads at once.
+ */
+final class TweetTokenizer {
+
+    // the characters of the tweet being scanned are text[0..length)
+    private char[] text = new char[0];
+    private int length = 0;
+
+    // String mode: the sentences of the tweet, and the clean words of the
+    // current sentence
+    private final List<List<String>> sentences = new ArrayList<>();
+    private List<String> sentence = new ArrayList<>();
+
+    // ID mode (vocabulary != null): the IDs of every clean word of the tweet,
+    // and where each sentence starts in them
+    private final Vocabulary vocabulary;
+    private int[] ids = new int[64];
+    private int idCount = 0;
+    private int[] sentenceStarts = new int[8];
+    private int sentenceCount = 0;
+    // whether the default locale lowercases I to a dotless i
+    private boolean dotlessI;
+
+    // the characters of the current word, before trimming
+    private char[] word = new char[32];
+    private int wordLength = 0;
+
+    private TweetTokenizer(String tweet) {
+        this.vocabulary = null;
+        load(tweet);
+    }
+
+    /**
+     * Creates a tokenizer that emits the IDs of the words of a tweet in
+     * vocabulary, interning new words.
+     *
+     * @param vocabulary - the vocabulary to look words up in
+     * @throws IllegalArgumentException if vocabulary is null
+     */
+    TweetTokenizer(Vocabulary vocabulary) {
+        if (vocabulary == null) {
+            throw new IllegalArgumentException("Vocabulary cannot be null.");
+        }
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Processes a tweet into a list of sentences, each of which is a
+     * (non-empty) list of cleaned words, exactly like
+     * {@link TweetParser#parseAndCleanTweet}.
+     *
+     * @param tweet - the tweet to split (assumed to be non-null)
+     * @return a (non-null) list of sentences, each of which is a (non-empty)
+     *         sequence of clean words drawn from the tweet
+     */
+    static List<List<String>> tokenize(String tweet) {
+        TweetTokenizer tokenizer = new TweetTokenizer(tweet);
+        tokenizer.scan();
+        return tokenizer.sentences;
+    }
+
+    /**
+     * Splits a tweet into the same sentences as {@link #tokenize(String)}, but
+     * as token IDs. Sentence {@code i} is
+     * {@code getIds()[sentenceStart(i)..sentenceEnd(i))}; the results are
+     * overwritten by the next call.
+     *
+     * @param tweet - the tweet to split (assumed to be non-null); it is only
+     *              read during the call
+     * @return the number of (non-empty) sentences in the tweet
+     * @throws IllegalStateException if the tokenizer has no vocabulary
+     */
+    int tokenizeIds(CharSequence tweet) {
+        if (vocabulary == null) {
+            throw new IllegalStateException("This tokenizer has no vocabulary.");
+        }
+        load(tweet);
+        String language = Locale.getDefault().getLanguage();
+        dotlessI = language.equals("tr") || language.equals("az");
+        idCount = 0;
+        sentenceCount = 0;
+        sentenceStarts[0] = 0;
+        scan();
+        return sentenceCount;
+    }
+
+    /**
+     * Copies the characters of a tweet into text, reusing it if it is large
+     * enough.
+     */
+    private void load(CharSequence tweet) {
+        length = tweet.length();
+        if (text.length < length) {
+            text = new char[Math.max(length, text.length * 2)];
+        }
+        if (tweet instanceof String) {
+            ((String) tweet).getChars(0, length, text, 0);
+        } else if (tweet instanceof StringBuilder) {
+            ((StringBuilder) tweet).getChars(0, length, text, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                text[i] = tweet.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * @return the IDs of the words of the last tweet passed to
+     *         {@link #tokenizeIds}, followed by stale entries
+     */
+    int[] getIds() {
+        return ids;
+    }
+
+    /**
+     * @param sentence - the index of a sentence of the last tweet
+     * @return the position in {@link #getIds()} of its first word
+     */
+    int sentenceStart(int sentence) {
+        return sentenceStarts[sentence];
+    }
+
+    /**
+     * @param sentence - the index of a sentence of the last tweet
+     * @return the position in {@link #getIds()} after its last word
+     */
+    int sentenceEnd(int sentence) {
+        return sentenceStarts[sentence + 1];
+    }
+
+    /**
+     * @return whether c is matched by {@code \s}
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * @return whether c ends a sentence, see {@link TweetParser#getPunctuation}
+     */
+    private static boolean isPunctuation(char c) {
+        return c == '.' || c == '?' || c == '!' || c == ';';
+    }
+
+    /**
+     * @return whether c is a line terminator, i.e. is not matched by {@code .}
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * @return whether c is matched by {@code \w}
+     */
+    private static boolean isWordChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    /**
+     * @return whether the tweet has "http" at position i
+     */
+    private boolean startsHttp(int i) {
+        return i + 4 <= length && text[i] == 'h' && text[i + 1] == 't' && text[i + 2] == 't'
+                && text[i + 3] == 'p';
+    }
+
+    /**
+     * Whether {@code \b} matches before position i of the tweet, given that the
+     * character at i is a letter. Follows {@code java.util.regex}: the
+     * character before must not be a letter, digit or underscore, nor a
+     * non-spacing mark on one.
+     */
+    private boolean wordStartsAt(int i) {
+        if (i == 0) {
+            return true;
+        }
+        int before = Character.codePointBefore(text, i);
+        if (before == '_' || Character.isLetterOrDigit(before)) {
+            return false;
+        }
+        if (Character.getType(before) != Character.NON_SPACING_MARK) {
+            return true;
+        }
+        for (int x = i - 1; x >= 0; x--) {
+            int ch = Character.codePointAt(text, x, length);
+            if (Character.isLetterOrDigit(ch)) {
+                return false;
+            }
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private void scan() {
+        int i = 0;
+        while (i < length) {
+            char c = text[i];
+            if (isSpace(c)) {
+                accept(c);
+                i++;
+                continue;
+            }
+            // a run of non-whitespace characters; from the first http that
+            // starts a word, the rest of the run is a URL
+            int url = -1;
+            int end = i;
+            while (end < length && !isSpace(c = text[end])) {
+                if (url < 0 && c == 'h' && startsHttp(end) && wordStartsAt(end)) {
+                    url = end;
+                } else if (url < 0) {
+                    accept(c);
+                }
+                end++;
+            }
+            if (url >= 0 && text[end - 1] == '.') {
+                accept('.');
+            }
+            i = end;
+        }
+        endSentence();
+    }
+
+    /**
+     * Feeds the next character of the tweet, with URLs removed.
+     */
+    private void accept(char c) {
+        if (isPunctuation(c)) {
+            endSentence();
+        } else if (c == ' ') {
+            endWord();
+        } else {
+            if (wordLength == word.length) {
+                char[] grown = new char[word.length * 2];
+                System.arraycopy(word, 0, grown, 0, wordLength);
+                word = grown;
+            }
+            word[wordLength++] = c;
+        }
+    }
+
+    private void endSentence() {
+        endWord();
+        if (vocabulary != null) {
+            if (idCount > sentenceStarts[sentenceCount]) {
+                sentenceCount++;
+                if (sentenceCount + 1 == sentenceStarts.length) {
+                    sentenceStarts = Arrays.copyOf(sentenceStarts, sentenceStarts.length * 2);
+                }
+                sentenceStarts[sentenceCount] = idCount;
+            }
+        } else if (!sentence.isEmpty()) {
+            sentences.add(sentence);
+            sentence = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Cleans the current word like {@link TweetParser#cleanWord} and adds it
+     * (or its ID) to the sentence unless it is empty or bad.
+     */
+    private void endWord() {
+        int from = 0;
+        int to = wordLength;
+        wordLength = 0;
+        // String.trim()
+        while (from < to && word[from] <= ' ') {
+            from++;
+        }
+        while (to > from && word[to - 1] <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return;
+        }
+        if (vocabulary != null && lowercaseInPlace(from, to)) {
+            if (!isBadWord(word, from, to)) {
+                addId(vocabulary.intern(word, from, to));
+            }
+            return;
+        }
+        String cleaned = new String(word, from, to - from).toLowerCase();
+        if (isBadWord(cleaned)) {
+            return;
+        }
+        if (vocabulary != null) {
+            addId(vocabulary.intern(cleaned));
+        } else {
+            sentence.add(cleaned);
+        }
+    }
+
+    private void addId(int id) {
+        if (idCount == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[idCount++] = id;
+    }
+
+    /**
+     * Lowercases word[from..to) in place if that gives the same result as
+     * {@link String#toLowerCase()}: the word is ASCII, and does not contain an
+     * I in a locale where that has a special lower case.
+     *
+     * @return whether the word was lowercased
+     */
+    private boolean lowercaseInPlace(int from, int to) {
+        for (int k = from; k < to; k++) {
+            char c = word[k];
+            if (c >= 0x80 || c == 'I' && dotlessI) {
+                return false;
+            }
+        }
+        for (int k = from; k < to; k++) {
+            char c = word[k];
+            if (c >= 'A' && c <= 'Z') {
+                word[k] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a lowercased, trimmed word matches BAD_WORD_REGEX, i.e. some
+     * character is neither a word character nor an apostrophe, and the .*
+     * around it can cover every other character, meaning there is at most one
+     * line terminator.
+     */
+    private static boolean isBadWord(String cleaned) {
+        boolean bad = false;
+        int terminators = 0;
+        for (int k = 0; k < cleaned.length(); k++) {
+            char ch = cleaned.charAt(k);
+            if (!isWordChar(ch) && ch != '\'') {
+                bad = true;
+                terminators += isLineTerminator(ch) ? 1 : 0;
+            }
+        }
+        return bad && terminators <= 1;
+    }
+
+    /**
+     * {@link #isBadWord(String)} for the lowercased word chars[from..to).
+     */
+    private static boolean isBadWord(char[] chars, int from, int to) {
+        boolean bad = false;
+        int terminators = 0;
+        for (int k = from; k < to; k++) {
+            char ch = chars[k];
+            if (!isWordChar(ch) && ch != '\'') {
+                bad = true;
+                terminators += isLineTerminator(ch) ? 1 : 0;
+            }
+        }
+        return bad && terminators <= 1;
+    }
+}
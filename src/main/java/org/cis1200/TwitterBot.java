@@ -1,19 +1,60 @@
 package org.cis1200;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Iterator;
 
 public class TwitterBot {
 
+    /** matches a token consisting of a single punctuation mark */
+    private static final String PUNCTUATION =
+            "[" + String.valueOf(TweetParser.getPunctuation()) + "]";
+
     private final MarkovChain mc;
+    // compiled from mc on the first tweet of bounded length, see compiled()
+    private volatile CompiledMarkovChain compiled;
 
     /**
+     * The MarkovChain is frozen once trained, so that random tweets are
+     * sampled in constant time per word. It is compiled the first time a
+     * tweet of bounded length is generated, so that bots that never ask for
+     * one do not keep a compiled copy of their transitions.
+     *
      * @param trainingData - cleaned data from which to construct the TwitterBot
      *                     MarkovModel
      */
     public TwitterBot(List<List<String>> trainingData) {
         mc = new MarkovChain(trainingData);
+        mc.freeze();
+    }
+
+    /**
+     * Trains the TwitterBot on sentences as they are produced, without
+     * holding the whole corpus in memory. See {@link MarkovChain#train}.
+     *
+     * @param sentences - cleaned sentences from which to construct the
+     *                  TwitterBot MarkovModel, e.g. from
+     *                  {@link TweetParser#csvDataToSentences}
+     */
+    public TwitterBot(Iterator<List<String>> sentences) {
+        mc = new MarkovChain();
+        mc.train(sentences);
+        mc.freeze();
+    }
+
+    /**
+     * @return mc compiled for tweets of bounded length, compiling it if this
+     *         is the first time it is needed. Threads that ask at the same
+     *         time may each compile an equal copy.
+     */
+    private CompiledMarkovChain compiled() {
+        CompiledMarkovChain result = compiled;
+        if (result == null) {
+            result = mc.compile();
+            compiled = result;
+        }
+        return result;
     }
 
      /*
@@ -23,8 +64,34 @@ public class TwitterBot {
      */
 
     public String generateTweet(NumberGenerator ng) {
+        return render(mc.getWalk(ng));
+    }
+
+    /**
+     * Generates a tweet of at most {@code maxLength} characters in a single
+     * walk, by only taking steps after which the tweet can still end in
+     * time (see {@link CompiledMarkovChain#getWalkWithinChars}).
+     *
+     * @param ng        a source of numbers for walking through the
+     *                  TwitterBot's MarkovChain
+     * @param maxLength the largest number of characters of the tweet
+     * @return the tweet generated by following that walk, or the empty
+     *         string if no tweet is short enough
+     * @throws IllegalArgumentException if ng is null or maxLength is negative
+     */
+    public String generateTweet(NumberGenerator ng, int maxLength) {
+        return render(compiled().getWalkWithinChars(ng, maxLength));
+    }
+
+    /**
+     * Joins the tokens of a walk into a tweet, without putting spaces around
+     * punctuation.
+     *
+     * @param walk the tokens to join
+     * @return the tweet formed by those tokens
+     */
+    private static String render(Iterator<String> walk) {
         StringBuilder tweet = new StringBuilder();
-        Iterator<String> walk = mc.getWalk(ng);
 
         String previousToken = null;
 
@@ -36,8 +103,8 @@ public class TwitterBot {
             }
 
             if (previousToken != null &&
-                    !previousToken.matches(TweetParser.PUNCTUATION)
-                    && !token.matches(TweetParser.PUNCTUATION)) {
+                    !previousToken.matches(PUNCTUATION)
+                    && !token.matches(PUNCTUATION)) {
                 tweet.append(' ');
             }
 
@@ -48,13 +115,38 @@ public class TwitterBot {
         return tweet.toString();
     }
 
+    /**
+     * Renders one walk produced by {@link CompiledMarkovChain#generateWalks}
+     * as a tweet, the same way {@link #generateTweet} renders a walk.
+     *
+     * @param chain  the chain that generated the walk
+     * @param tokens the token IDs written by generateWalks
+     * @param from   the start of the walk in tokens
+     * @param to     the end of the walk in tokens
+     * @return the tweet formed by those tokens
+     */
+    public static String renderTweet(CompiledMarkovChain chain, int[] tokens, int from, int to) {
+        return render(Arrays.stream(tokens, from, to).mapToObj(chain::token).iterator());
+    }
+
     /**
      * Generates a random tweet. This function is implemented for you.
      *
      * @return a randomly generated tweet
      */
     public String generateTweet() {
-        return generateTweet(new RandomNumberGenerator());
+        return render(mc.getRandomWalk());
+    }
+
+    /**
+     * Generates a random tweet of at most {@code maxLength} characters.
+     *
+     * @param maxLength the largest number of characters of the tweet
+     * @return a randomly generated tweet, or the empty string if no tweet is
+     *         short enough
+     */
+    public String generateTweet(int maxLength) {
+        return generateTweet(new RandomNumberGenerator(), maxLength);
     }
 
     /**
@@ -0,0 +1,232 @@
+package org.cis1200;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Maps each distinct token to a dense int ID, starting at zero in the order
+ * the tokens are first interned. A {@code Vocabulary} can be shared by several
+ * {@code MarkovChain}s so that they agree on token IDs.
+ * <p>
+ * Tokens are stored once, in an open-addressing table keyed by their
+ * {@code String} hash code, so looking up a token never allocates.
+ */
+public class Vocabulary {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // open-addressing table from token hash to ID + 1; 0 marks an empty bucket
+    // INVARIANT: buckets.length is a power of two, at least twice words.length
+    private int[] buckets;
+    // words[id] is the token with that ID, for IDs in [0, size)
+    private String[] words;
+    // hashes[id] caches words[id].hashCode() so that rehashing and probing
+    // do not touch the Strings
+    private int[] hashes;
+    private int size = 0;
+
+    /**
+     * Creates an empty vocabulary.
+     */
+    public Vocabulary() {
+        this.words = new String[INITIAL_CAPACITY];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.buckets = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * @return the number of distinct tokens in the vocabulary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the estimated bytes retained by this vocabulary, including its
+     *         token Strings, see {@link ChainStats}
+     */
+    long estimatedBytes() {
+        long bytes = ChainStats.objectBytes(16) + ChainStats.arrayBytes(buckets.length, 4)
+                + ChainStats.arrayBytes(words.length, 4) + ChainStats.arrayBytes(hashes.length, 4);
+        for (int id = 0; id < size; id++) {
+            bytes += ChainStats.stringBytes(words[id]);
+        }
+        return bytes;
+    }
+
+    /**
+     * Spreads the bits of a hash code over the low bits used as bucket index.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the ID of a token, adding it to the vocabulary if it has not been
+     * seen before.
+     *
+     * @param word - the token to intern
+     * @return the ID of word
+     * @throws IllegalArgumentException if word is null
+     */
+    public int intern(String word) {
+        if (word == null) {
+            throw new IllegalArgumentException("Cannot intern a null token.");
+        }
+        int hash = word.hashCode();
+        int mask = buckets.length - 1;
+        int b = spread(hash) & mask;
+        while (buckets[b] != 0) {
+            int id = buckets[b] - 1;
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+            b = (b + 1) & mask;
+        }
+        return add(word, hash, b);
+    }
+
+    /**
+     * Returns the ID of the token spelled by {@code chars[from..to)}, adding
+     * it to the vocabulary if it has not been seen before. The span is hashed
+     * the same way as {@link String#hashCode()} and compared in place, so a
+     * String is only created when the token is new.
+     *
+     * @param chars - the characters holding the token
+     * @param from  - the index of the first character of the token
+     * @param to    - the index after the last character of the token
+     * @return the ID of the token
+     * @throws IndexOutOfBoundsException if the span is not within chars
+     */
+    public int intern(char[] chars, int from, int to) {
+        if (from < 0 || to > chars.length || from > to) {
+            throw new IndexOutOfBoundsException("Invalid span [" + from + ", " + to + ")");
+        }
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = buckets.length - 1;
+        int b = spread(hash) & mask;
+        while (buckets[b] != 0) {
+            int id = buckets[b] - 1;
+            if (hashes[id] == hash && spells(words[id], chars, from, to)) {
+                return id;
+            }
+            b = (b + 1) & mask;
+        }
+        return add(new String(chars, from, to - from), hash, b);
+    }
+
+    /**
+     * @return whether word consists of exactly the characters chars[from..to)
+     */
+    private static boolean spells(String word, char[] chars, int from, int to) {
+        if (word.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (word.charAt(i - from) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives a token that is not in the vocabulary the next ID.
+     *
+     * @param word   - the new token
+     * @param hash   - its hash code
+     * @param bucket - the empty bucket where probing for it ended
+     * @return the ID of word
+     */
+    private int add(String word, int hash, int bucket) {
+        if (size == words.length) {
+            grow();
+            return intern(word);
+        }
+        words[size] = word;
+        hashes[size] = hash;
+        buckets[bucket] = size + 1;
+        return size++;
+    }
+
+    /**
+     * Returns the ID of a token without adding it to the vocabulary.
+     *
+     * @param word - the token to look up
+     * @return the ID of word, or -1 if it is null or not in the vocabulary
+     */
+    public int id(String word) {
+        if (word == null) {
+            return -1;
+        }
+        int hash = word.hashCode();
+        int mask = buckets.length - 1;
+        for (int b = spread(hash) & mask; buckets[b] != 0; b = (b + 1) & mask) {
+            int id = buckets[b] - 1;
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id - an ID returned by {@link #intern}
+     * @return the token with that ID
+     * @throws IllegalArgumentException if no token has that ID
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No token with ID " + id);
+        }
+        return words[id];
+    }
+
+    /**
+     * Compares two tokens by their IDs, in the natural order of the tokens.
+     *
+     * @return a negative number, zero or a positive number as the token with ID
+     *         a is less than, equal to or greater than the token with ID b
+     */
+    int compare(int a, int b) {
+        return words[a].compareTo(words[b]);
+    }
+
+    /**
+     * @return every ID of the vocabulary, sorted by the natural order of the
+     *         tokens
+     */
+    int[] sortedIds() {
+        Integer[] ids = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+        Arrays.sort(ids, Comparator.comparing(id -> words[id]));
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = ids[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * Doubles the capacity of the vocabulary and rehashes every token.
+     */
+    private void grow() {
+        int capacity = words.length * 2;
+        words = Arrays.copyOf(words, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        buckets = new int[capacity * 2];
+        int mask = buckets.length - 1;
+        for (int id = 0; id < size; id++) {
+            int b = spread(hashes[id]) & mask;
+            while (buckets[b] != 0) {
+                b = (b + 1) & mask;
+            }
+            buckets[b] = id + 1;
+        }
+    }
+}
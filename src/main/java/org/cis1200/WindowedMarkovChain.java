@@ -0,0 +1,155 @@
+package org.cis1200;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A Markov chain that only remembers recent training data, for bots that
+ * ingest tweets indefinitely.
+ * <p>
+ * Training data is counted in buckets, e.g. one bucket per hour. The caller
+ * decides when a bucket is complete by calling {@link #advance()}; once the
+ * window holds more than {@code windowSize} buckets, the counts of the oldest
+ * bucket are subtracted from the model with {@link MarkovChain#subtract}.
+ * Walks are proportional to the counts of the buckets in the window, and
+ * tokens that no longer occur in any of them are dropped, so memory stays
+ * proportional to the data in the window rather than to everything that
+ * was ever ingested.
+ */
+public class WindowedMarkovChain {
+
+    private final int windowSize;
+
+    // the counts of each bucket in the window, oldest first; each has its own
+    // vocabulary, which is dropped along with the bucket
+    // INVARIANT: 1 <= buckets.size() <= windowSize
+    private final ArrayDeque<MarkovChain> buckets;
+
+    // the sum of all buckets
+    private MarkovChain chain;
+
+    /**
+     * Construct an empty chain that remembers the last {@code windowSize}
+     * buckets of training data, including the current one.
+     *
+     * @param windowSize - the number of buckets in the window
+     * @throws IllegalArgumentException if windowSize is not positive
+     */
+    public WindowedMarkovChain(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive.");
+        }
+        this.windowSize = windowSize;
+        this.buckets = new ArrayDeque<>();
+        this.buckets.add(new MarkovChain());
+        this.chain = new MarkovChain();
+    }
+
+    /**
+     * @return the number of buckets in the window
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return the number of buckets currently counted, at most windowSize
+     */
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Adds a single sentence to the current bucket, see
+     * {@link MarkovChain#addSequence}. The sentence is checked before it is
+     * counted, so an invalid one changes neither the bucket nor the model.
+     *
+     * @param sentence an iterator representing one sentence of training data
+     * @throws IllegalArgumentException when the iterator or a token is null
+     */
+    public void addSequence(Iterator<String> sentence) {
+        if (sentence == null) {
+            throw new IllegalArgumentException("Sentence iterator cannot be null.");
+        }
+        List<String> tokens = new ArrayList<>();
+        while (sentence.hasNext()) {
+            String token = sentence.next();
+            if (token == null) {
+                throw new IllegalArgumentException("Cannot intern a null token.");
+            }
+            tokens.add(token);
+        }
+        buckets.getLast().addSequence(tokens.iterator());
+        chain.addSequence(tokens.iterator());
+    }
+
+    /**
+     * Adds each of the sentences to the current bucket in turn.
+     *
+     * @param sentences - the input sequences of tokens
+     * @throws IllegalArgumentException when sentences is null
+     */
+    public void train(Iterator<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("Sentences cannot be null.");
+        }
+        while (sentences.hasNext()) {
+            addSequence(sentences.next().iterator());
+        }
+    }
+
+    /**
+     * Starts a new bucket. If that makes the window hold more than windowSize
+     * buckets, the oldest one is forgotten.
+     */
+    public void advance() {
+        buckets.addLast(new MarkovChain());
+        if (buckets.size() > windowSize) {
+            chain.subtract(buckets.removeFirst());
+            // subtracting leaves forgotten words in the vocabulary; once they
+            // outnumber the live ones, rebuild the model from the buckets
+            int liveTokens = chain.bigramFrequencies.size() + 1;
+            if (chain.vocabulary.size() > 2 * liveTokens) {
+                MarkovChain rebuilt = new MarkovChain();
+                for (MarkovChain bucket : buckets) {
+                    rebuilt.merge(bucket);
+                }
+                chain = rebuilt;
+            }
+        }
+    }
+
+    /**
+     * Returns the model of the buckets in the window. It must not be trained
+     * directly, and it may be replaced by a new object after
+     * {@link #advance()}.
+     *
+     * @return the chain holding the counts of every bucket in the window
+     */
+    public MarkovChain getChain() {
+        return chain;
+    }
+
+    /**
+     * Gets a walk through the model of the buckets in the window that follows
+     * the path given by the {@code NumberGenerator}, with the same contract
+     * as {@link MarkovChain#getWalk}.
+     *
+     * @param ng the path to follow
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getWalk(NumberGenerator ng) {
+        return chain.getWalk(ng);
+    }
+
+    /**
+     * Gets a random walk through the model of the buckets in the window.
+     *
+     * @return an {@code Iterator} that yields the tokens on that path
+     */
+    public Iterator<String> getRandomWalk() {
+        return chain.getRandomWalk();
+    }
+}
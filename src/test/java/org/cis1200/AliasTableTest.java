@@ -0,0 +1,102 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for AliasTable and MarkovChain.freeze */
+public class AliasTableTest {
+
+    /**
+     * Samples the table once for every possible pair of (column, threshold)
+     * draws, and counts how often each element comes out.
+     */
+    private static Map<Integer, Integer> sampleAllDraws(AliasTable table) {
+        Map<Integer, Integer> seen = new TreeMap<>();
+        for (int column = 0; column < table.size(); column++) {
+            for (int u = 0; u < table.getTotal(); u++) {
+                int s = table.sample(new ListNumberGenerator(new int[] { column, u }));
+                seen.put(s, seen.getOrDefault(s, 0) + 1);
+            }
+        }
+        return seen;
+    }
+
+    @Test
+    public void testAliasTableIsExact() {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution();
+        int[] keys = { 1, 2, 2, 3, 3, 3, 3, 3, 4, 5, 5 };
+        for (int k : keys) {
+            pd.record(k);
+        }
+        Map<Integer, Integer> seen = sampleAllDraws(pd.freeze());
+
+        // every element is drawn count * size times out of total * size draws
+        assertEquals(pd.size(), seen.size());
+        for (int k : seen.keySet()) {
+            assertEquals(pd.count(k) * pd.size(), seen.get(k));
+        }
+    }
+
+    @Test
+    public void testAliasTableSingleElement() {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution();
+        pd.record(42);
+        pd.record(42);
+        AliasTable table = pd.freeze();
+        assertEquals(42, table.sample(new RandomNumberGenerator(1)));
+    }
+
+    @Test
+    public void testAliasTableEmpty() {
+        AliasTable table = new IntProbabilityDistribution().freeze();
+        assertThrows(
+                NoSuchElementException.class,
+                () -> table.sample(new RandomNumberGenerator())
+        );
+    }
+
+    @Test
+    public void testFrozenRandomWalkFollowsChain() {
+        MarkovChain mc = new MarkovChain();
+        mc.addSequence(Arrays.asList("a", "table", "and", "a", "chair").iterator());
+        mc.addSequence(Arrays.asList("a", "banana", "!", "and", "a", "banana", "?").iterator());
+        mc.freeze();
+        assertTrue(mc.isFrozen());
+
+        for (int i = 0; i < 100; i++) {
+            Iterator<String> walk = mc.getRandomWalk();
+            String prev = walk.next();
+            assertEquals("a", prev);
+            while (walk.hasNext()) {
+                String next = walk.next();
+                assertTrue(mc.get(prev).count(next) > 0);
+                prev = next;
+            }
+            assertTrue(mc.get(prev).count(MarkovChain.END_TOKEN) > 0);
+        }
+    }
+
+    @Test
+    public void testTrainingThawsChain() {
+        MarkovChain mc = new MarkovChain();
+        mc.addSequence(Collections.singletonList("alone").iterator());
+        mc.freeze();
+        mc.addSequence(Arrays.asList("not", "alone").iterator());
+        assertFalse(mc.isFrozen());
+
+        Iterator<String> walk = mc.getWalk(new ListNumberGenerator(new int[] { 1, 0, 0 }));
+        assertEquals("not", walk.next());
+        assertEquals("alone", walk.next());
+        assertFalse(walk.hasNext());
+    }
+
+    @Test
+    public void testEmptyFrozenChain() {
+        MarkovChain mc = new MarkovChain();
+        mc.freeze();
+        assertFalse(mc.getRandomWalk().hasNext());
+    }
+}
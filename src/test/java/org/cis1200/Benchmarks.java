@@ -0,0 +1,461 @@
+package org.cis1200;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Rough throughput benchmarks on the bundled {@code files/*.csv} data. These
+ * are not unit tests and are not run by {@code mvn test}. After
+ * {@code mvn test-compile}, run them from the project directory with
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes org.cis1200.Benchmarks [name...]
+ * </pre>
+ *
+ * where each name selects one benchmark (all of them if none are given).
+ */
+public class Benchmarks {
+
+    /** the bundled tweet archives; tweets are in column 2 */
+    private static final String[] CSV_FILES = {
+        "files/big_ben_clock_tweets.csv",
+        "files/captain_markov_tweets.csv",
+        "files/dog_feelings_tweets.csv",
+        "files/noaa_tweets.csv"
+    };
+    private static final int TWEET_COLUMN = 2;
+
+    /** the bundled corpus is repeated this many times to get measurable work */
+    private static final int SCALE = 200;
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    /**
+     * @return the training data of all bundled archives, repeated SCALE times
+     */
+    private static List<List<String>> scaledTrainingData() {
+        List<List<String>> corpus = new ArrayList<>();
+        for (String file : CSV_FILES) {
+            corpus.addAll(
+                    TweetParser.csvDataToTrainingData(FileUtilities.fileToReader(file), TWEET_COLUMN)
+            );
+        }
+        List<List<String>> scaled = new ArrayList<>(corpus.size() * SCALE);
+        for (int i = 0; i < SCALE; i++) {
+            scaled.addAll(corpus);
+        }
+        return scaled;
+    }
+
+    /**
+     * Runs a task a few times to warm up, then reports the best of ROUNDS
+     * timed runs as a throughput.
+     *
+     * @param label - what is being measured
+     * @param units - the number of items each run processes
+     * @param task  - the work to time; its result is kept alive
+     */
+    private static void time(String label, long units, Supplier<?> task) {
+        Object sink = null;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink = task.get();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink = task.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf(
+                "%-40s %10.1f ms %14.0f items/s%n", label, best / 1e6,
+                units / (best / 1e9)
+        );
+        if (sink == null) {
+            System.out.println("(no result)");
+        }
+    }
+
+    /**
+     * Sequential training versus MarkovChain.trainParallel, and training with
+     * a random walk taken after every sentence, so that picks and records
+     * alternate on the same rows.
+     */
+    private static void training() {
+        List<List<String>> data = scaledTrainingData();
+        System.out.println("training on " + data.size() + " sentences");
+        time("sequential", data.size(), () -> new MarkovChain(data));
+        List<List<String>> head = data.subList(0, data.size() / 10);
+        time("sequential, walk after each sentence", head.size(), () -> {
+            MarkovChain mc = new MarkovChain();
+            RandomNumberGenerator ng = new RandomNumberGenerator(1200);
+            for (List<String> sentence : head) {
+                mc.addSequence(sentence.iterator());
+                mc.getWalk(ng).forEachRemaining(token -> { });
+            }
+            return mc;
+        });
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= Math.max(2, cores); threads *= 2) {
+            int t = threads;
+            time("parallel, " + t + " threads", data.size(),
+                    () -> MarkovChain.trainParallel(data, t));
+        }
+    }
+
+    /**
+     * The regex path of TweetParser.parseAndCleanTweet versus the single-pass
+     * TweetTokenizer, on every tweet of the bundled archives.
+     */
+    private static void parsing() {
+        List<String> corpus = new ArrayList<>();
+        for (String file : CSV_FILES) {
+            corpus.addAll(
+                    TweetParser.csvDataToTweets(FileUtilities.fileToReader(file), TWEET_COLUMN)
+            );
+        }
+        // the regex path is slow, so use a tenth of the usual scale
+        List<String> tweets = new ArrayList<>(corpus.size() * SCALE / 10);
+        for (int i = 0; i < SCALE / 10; i++) {
+            tweets.addAll(corpus);
+        }
+        long chars = tweets.stream().mapToLong(String::length).sum();
+        System.out.println("parsing " + tweets.size() + " tweets, " + chars + " chars");
+        time("regex (parseAndCleanTweet)", tweets.size(), () -> {
+            List<List<String>> sentences = new ArrayList<>();
+            for (String tweet : tweets) {
+                sentences.addAll(TweetParser.parseAndCleanTweet(tweet));
+            }
+            return sentences;
+        });
+        time("single pass (TweetTokenizer)", tweets.size(), () -> {
+            List<List<String>> sentences = new ArrayList<>();
+            for (String tweet : tweets) {
+                sentences.addAll(TweetTokenizer.tokenize(tweet));
+            }
+            return sentences;
+        });
+    }
+
+    /**
+     * Reading, parsing and training one after the other versus
+     * IngestionPipeline, on the bundled archives concatenated SCALE / 10 times
+     * in memory.
+     */
+    private static void pipeline() {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < SCALE / 10; i++) {
+            for (String file : CSV_FILES) {
+                try {
+                    csv.append(Files.readString(Path.of(file))).append('\n');
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read " + file + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        String data = csv.toString();
+        long tweets = TweetParser.csvDataToTweets(reader(data), TWEET_COLUMN).size();
+        System.out.println(tweets + " tweets, " + data.length() + " chars");
+        time("sequential", tweets, () -> new MarkovChain(
+                TweetParser.csvDataToTrainingData(reader(data), TWEET_COLUMN)
+        ));
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int workers = 1; workers <= Math.max(2, cores); workers *= 2) {
+            IngestionPipeline pipeline = new IngestionPipeline(
+                    workers, IngestionPipeline.DEFAULT_QUEUE_CAPACITY,
+                    IngestionPipeline.DEFAULT_BATCH_SIZE
+            );
+            time("pipeline, " + workers + " parse workers", tweets,
+                    () -> pipeline.run(reader(data), TWEET_COLUMN));
+            System.out.println(pipeline.getStats());
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Training on parsed String sentences versus parsing straight to token
+     * IDs with MarkovChain.train(BufferedReader, int), on noaa_tweets.csv
+     * repeated SCALE / 10 times: time, and bytes allocated per word once the
+     * vocabulary is warm.
+     */
+    private static void tokenIds() {
+        String file = "files/noaa_tweets.csv";
+        String data;
+        try {
+            data = Files.readString(Path.of(file)).concat("\n").repeat(SCALE / 10);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + file + ": " + e.getMessage(), e);
+        }
+        long words = TweetParser.csvDataToTrainingDataStream(reader(data), TWEET_COLUMN)
+                .mapToLong(List::size).sum();
+        System.out.println(words + " words, " + data.length() + " chars");
+        time("String sentences", words, () -> {
+            MarkovChain mc = new MarkovChain();
+            mc.train(TweetParser.csvDataToSentences(reader(data), TWEET_COLUMN));
+            return mc;
+        });
+        time("token IDs", words, () -> {
+            MarkovChain mc = new MarkovChain();
+            mc.train(reader(data), TWEET_COLUMN);
+            return mc;
+        });
+
+        // train once so every word is interned, then measure a second pass
+        MarkovChain strings = new MarkovChain();
+        strings.train(TweetParser.csvDataToSentences(reader(data), TWEET_COLUMN));
+        long before = allocatedBytes();
+        strings.train(TweetParser.csvDataToSentences(reader(data), TWEET_COLUMN));
+        long stringBytes = allocatedBytes() - before;
+        MarkovChain ids = new MarkovChain();
+        ids.train(reader(data), TWEET_COLUMN);
+        before = allocatedBytes();
+        ids.train(reader(data), TWEET_COLUMN);
+        long idBytes = allocatedBytes() - before;
+        System.out.printf(
+                "allocated per word: String sentences %.1f bytes, token IDs %.1f bytes%n",
+                (double) stringBytes / words, (double) idBytes / words
+        );
+    }
+
+    private static BufferedReader reader(String data) {
+        return new BufferedReader(new StringReader(data));
+    }
+
+    /**
+     * @return the heap in use after a full collection, in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Context count, memory per context and walk latency of NGramMarkovChain
+     * for each supported order, trained on the unscaled corpus.
+     */
+    private static void ngram() {
+        List<List<String>> data = new ArrayList<>();
+        for (String file : CSV_FILES) {
+            data.addAll(
+                    TweetParser.csvDataToTrainingData(FileUtilities.fileToReader(file), TWEET_COLUMN)
+            );
+        }
+        int walks = 100_000;
+        for (int k = NGramMarkovChain.MIN_ORDER; k <= NGramMarkovChain.MAX_ORDER; k++) {
+            long before = usedHeap();
+            NGramMarkovChain chain = new NGramMarkovChain(k);
+            chain.train(data.iterator());
+            long bytes = usedHeap() - before;
+            System.out.printf(
+                    "order %d: %8d contexts %8.1f bytes/context%n", k, chain.contextCount(),
+                    (double) bytes / chain.contextCount()
+            );
+            RandomNumberGenerator ng = new RandomNumberGenerator(1200);
+            time("order " + k + ", random walks", walks, () -> {
+                int tokens = 0;
+                for (int i = 0; i < walks; i++) {
+                    for (Iterator<String> walk = chain.getWalk(ng); walk.hasNext(); walk.next()) {
+                        tokens++;
+                    }
+                }
+                return tokens;
+            });
+        }
+    }
+
+    /**
+     * Retraining from the CSV files versus loading a memory-mapped snapshot.
+     */
+    private static void snapshot() {
+        String file;
+        try {
+            Path path = Files.createTempFile("chain", ".bin");
+            path.toFile().deleteOnExit();
+            file = path.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        List<List<String>> data = scaledTrainingData();
+        new MarkovChain(data).compile().save(file);
+        System.out.printf(
+                "snapshot of %d sentences: %d bytes%n", data.size(), new File(file).length()
+        );
+        time("retrain from parsed sentences", 1, () -> new MarkovChain(data).compile());
+        time("load snapshot", 1, () -> CompiledMarkovChain.load(file));
+        time("load snapshot, first walk", 1,
+                () -> CompiledMarkovChain.load(file).getWalk(new RandomNumberGenerator(1200)).next());
+    }
+
+    /**
+     * Walks through String iterators versus CompiledMarkovChain.generateWalks,
+     * with the transitions on and off the heap.
+     */
+    private static void walks() {
+        MarkovChain mc = new MarkovChain(scaledTrainingData());
+        int count = 100_000;
+        RandomNumberGenerator ng = new RandomNumberGenerator(1200);
+        int[] tokens = new int[count * 64];
+        int[] offsets = new int[count + 1];
+        for (boolean offHeap : new boolean[] { false, true }) {
+            CompiledMarkovChain chain = offHeap ? mc.compileOffHeap() : mc.compile();
+            String where = offHeap ? ", off heap" : ", on heap";
+            time("iterator walks" + where, count, () -> {
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    for (Iterator<String> walk = chain.getWalk(ng); walk.hasNext(); walk.next()) {
+                        n++;
+                    }
+                }
+                return n;
+            });
+            time("generateWalks" + where, count,
+                    () -> chain.generateWalks(ng, count, tokens, offsets));
+        }
+    }
+
+    /**
+     * MarkovChain.getStats estimates versus the measured heap of a chain.
+     */
+    private static void stats() {
+        List<List<String>> data = scaledTrainingData();
+        long before = usedHeap();
+        MarkovChain chain = new MarkovChain(data);
+        long measured = usedHeap() - before;
+        ChainStats stats = chain.getStats();
+        System.out.println(stats);
+        System.out.printf(
+                "estimated %d bytes, measured %d bytes%n", stats.getTotalBytes(), measured
+        );
+        time("getStats", 1, chain::getStats);
+    }
+
+    /**
+     * Scoring sentences through MarkovChain.get versus
+     * CompiledMarkovChain.logProbabilities.
+     */
+    private static void scoring() {
+        List<List<String>> corpus = new ArrayList<>();
+        for (String file : CSV_FILES) {
+            corpus.addAll(
+                    TweetParser.csvDataToTrainingData(FileUtilities.fileToReader(file), TWEET_COLUMN)
+            );
+        }
+        MarkovChain mc = new MarkovChain(corpus);
+        CompiledMarkovChain chain = mc.compile();
+        List<List<String>> data = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            data.addAll(corpus);
+        }
+        time("MarkovChain.get per bigram", data.size(), () -> {
+            double sum = 0;
+            for (List<String> sentence : data) {
+                String previous = null;
+                for (int w = 0; w <= sentence.size(); w++) {
+                    String token = w < sentence.size() ? sentence.get(w) : MarkovChain.END_TOKEN;
+                    ProbabilityDistribution<String> pd = previous == null ? mc.startTokens
+                            : mc.get(previous);
+                    sum += Math.log(pd.count(token) / (double) pd.getTotal());
+                    previous = token;
+                }
+            }
+            return sum;
+        });
+        time("logProbabilities", data.size(), () -> chain.logProbabilities(data));
+    }
+
+    /**
+     * Runs work(t) on threads 0 .. threads - 1 and waits for all of them.
+     */
+    private static void runThreads(int threads, IntConsumer work) {
+        List<Thread> running = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread thread = new Thread(() -> work.accept(id));
+            thread.start();
+            running.add(thread);
+        }
+        for (Thread thread : running) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Concurrent addSequence from 1 to N threads: one MarkovChain behind a
+     * global lock versus a ConcurrentMarkovChain.
+     */
+    private static void concurrent() {
+        List<List<String>> data = scaledTrainingData().subList(0, 200_000);
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(cores + " cores, " + data.size() + " sentences");
+        for (int threads = 1; threads <= Math.max(4, 2 * cores); threads *= 2) {
+            int n = threads;
+            time("global lock, " + n + " threads", data.size(), () -> {
+                MarkovChain mc = new MarkovChain();
+                runThreads(n, t -> {
+                    for (int i = t; i < data.size(); i += n) {
+                        synchronized (mc) {
+                            mc.addSequence(data.get(i).iterator());
+                        }
+                    }
+                });
+                return mc;
+            });
+            time("striped, " + n + " threads", data.size(), () -> {
+                ConcurrentMarkovChain cmc = new ConcurrentMarkovChain();
+                runThreads(n, t -> {
+                    for (int i = t; i < data.size(); i += n) {
+                        cmc.addSequence(data.get(i).iterator());
+                    }
+                });
+                return cmc;
+            });
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, Runnable> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("training", Benchmarks::training);
+        benchmarks.put("parsing", Benchmarks::parsing);
+        benchmarks.put("pipeline", Benchmarks::pipeline);
+        benchmarks.put("ids", Benchmarks::tokenIds);
+        benchmarks.put("ngram", Benchmarks::ngram);
+        benchmarks.put("snapshot", Benchmarks::snapshot);
+        benchmarks.put("walks", Benchmarks::walks);
+        benchmarks.put("stats", Benchmarks::stats);
+        benchmarks.put("scoring", Benchmarks::scoring);
+        benchmarks.put("concurrent", Benchmarks::concurrent);
+
+        Collection<String> names = args.length == 0 ? benchmarks.keySet() : Arrays.asList(args);
+        for (String name : names) {
+            Runnable benchmark = benchmarks.get(name);
+            if (benchmark == null) {
+                System.out.println("unknown benchmark: " + name);
+            } else {
+                System.out.println("== " + name);
+                benchmark.run();
+            }
+        }
+    }
+}
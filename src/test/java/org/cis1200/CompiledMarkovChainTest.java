@@ -0,0 +1,447 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.cis1200.Walks.drain;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for CompiledMarkovChain */
+public class CompiledMarkovChainTest {
+
+    private static MarkovChain illustrativeChain() {
+        MarkovChain mc = new MarkovChain();
+        mc.addSequence(Arrays.asList("a", "table", "and", "a", "chair").iterator());
+        mc.addSequence(Arrays.asList("a", "banana", "!", "and", "a", "banana", "?").iterator());
+        return mc;
+    }
+
+    @Test
+    public void testCompiledLayout() {
+        CompiledMarkovChain cmc = illustrativeChain().compile();
+        // a, table, and, chair, banana, !, ? and <END>
+        assertEquals(8, cmc.tokenCount());
+        // a -> {banana, chair, table}, table -> and, and -> a, chair -> <END>,
+        // banana -> {!, ?}, ! -> and, ? -> <END>
+        assertEquals(10, cmc.edgeCount());
+    }
+
+    @Test
+    public void testCompiledWalk() {
+        MarkovChain mc = new MarkovChain();
+        mc.addSequence(Arrays.asList("CIS", "1200", "rocks").iterator());
+        mc.addSequence(Arrays.asList("CIS", "1200", "beats", "CIS", "1600").iterator());
+        CompiledMarkovChain cmc = mc.compile();
+
+        int[] seq = { 0, 0, 0, 0, 0, 1, 0 };
+        assertEquals(
+                Arrays.asList("CIS", "1200", "beats", "CIS", "1200", "rocks"),
+                drain(cmc.getWalk(new ListNumberGenerator(seq)))
+        );
+    }
+
+    @Test
+    public void testCompiledWalksMatchChain() {
+        MarkovChain mc = illustrativeChain();
+        mc.addSequence(Arrays.asList("the", "table", "and", "the", "chair", "!").iterator());
+        CompiledMarkovChain cmc = mc.compile();
+        for (long seed = 0; seed < 200; seed++) {
+            assertEquals(
+                    drain(mc.getWalk(new RandomNumberGenerator(seed))),
+                    drain(cmc.getWalk(new RandomNumberGenerator(seed)))
+            );
+        }
+    }
+
+    @Test
+    public void testCompiledCopyIsIndependent() {
+        MarkovChain mc = new MarkovChain();
+        mc.addSequence(Collections.singletonList("alone").iterator());
+        CompiledMarkovChain cmc = mc.compile();
+        mc.addSequence(Arrays.asList("not", "alone").iterator());
+        assertEquals(
+                Collections.singletonList("alone"),
+                drain(cmc.getWalk(new ListNumberGenerator(new int[] { 0 })))
+        );
+    }
+
+    @Test
+    public void testEmptyCompiledChain() {
+        CompiledMarkovChain cmc = new MarkovChain().compile();
+        assertFalse(cmc.getRandomWalk().hasNext());
+        assertEquals(0, cmc.edgeCount());
+    }
+
+    @Test
+    public void testInvalidChoice() {
+        CompiledMarkovChain cmc = illustrativeChain().compile();
+        Iterator<String> walk = cmc.getWalk(new ListNumberGenerator(new int[] { 0, 0, -1 }));
+        assertEquals("a", walk.next());
+        assertTrue(walk.hasNext());
+        assertThrows(NoSuchElementException.class, walk::next);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip(@TempDir Path dir) {
+        MarkovChain mc = illustrativeChain();
+        mc.addSequence(Arrays.asList("café", "über", "😀", "!").iterator());
+        String file = dir.resolve("chain.bin").toString();
+        mc.compile().save(file);
+
+        CompiledMarkovChain loaded = CompiledMarkovChain.load(file);
+        assertEquals(mc.compile().tokenCount(), loaded.tokenCount());
+        assertEquals(mc.compile().edgeCount(), loaded.edgeCount());
+        for (long seed = 0; seed < 200; seed++) {
+            assertEquals(
+                    drain(mc.getWalk(new RandomNumberGenerator(seed))),
+                    drain(loaded.getWalk(new RandomNumberGenerator(seed)))
+            );
+        }
+
+        // a loaded chain can be saved and loaded again
+        String copy = dir.resolve("copy.bin").toString();
+        loaded.save(copy);
+        assertEquals(
+                drain(loaded.getWalk(new ListNumberGenerator(new int[] { 2, 0 }))),
+                drain(CompiledMarkovChain.load(copy).getWalk(
+                        new ListNumberGenerator(new int[] { 2, 0 })
+                ))
+        );
+    }
+
+    @Test
+    public void testSnapshotLargerThanWriteBuffer(@TempDir Path dir) throws IOException {
+        MarkovChain mc = new MarkovChain();
+        for (int i = 0; i < 20_000; i++) {
+            mc.addSequence(Arrays.asList("w" + i % 3000, "w" + i % 4001, "w" + i % 17).iterator());
+        }
+        // a token that is longer than the buffer save writes through
+        mc.addSequence(Arrays.asList("long", "é".repeat(50_000)).iterator());
+        CompiledMarkovChain cmc = mc.compile();
+        String file = dir.resolve("chain.bin").toString();
+        cmc.save(file);
+        assertTrue(Files.size(Path.of(file)) > 1 << 17);
+
+        CompiledMarkovChain loaded = CompiledMarkovChain.load(file);
+        assertEquals(cmc.tokenCount(), loaded.tokenCount());
+        assertEquals(cmc.edgeCount(), loaded.edgeCount());
+        for (long seed = 0; seed < 200; seed++) {
+            assertEquals(
+                    drain(cmc.getWalk(new RandomNumberGenerator(seed))),
+                    drain(loaded.getWalk(new RandomNumberGenerator(seed)))
+            );
+        }
+        assertEquals(
+                Arrays.asList("long", "é".repeat(50_000)),
+                drain(loaded.getWalk(new ListNumberGenerator(new int[] { 0, 0 })))
+        );
+
+        // saving a loaded chain copies its word data unchanged
+        String copy = dir.resolve("copy.bin").toString();
+        loaded.save(copy);
+        assertArrayEquals(Files.readAllBytes(Path.of(file)), Files.readAllBytes(Path.of(copy)));
+    }
+
+    @Test
+    public void testEmptySnapshot(@TempDir Path dir) {
+        String file = dir.resolve("empty.bin").toString();
+        new MarkovChain().compile().save(file);
+        CompiledMarkovChain loaded = CompiledMarkovChain.load(file);
+        assertEquals(1, loaded.tokenCount());
+        assertFalse(loaded.getRandomWalk().hasNext());
+    }
+
+    @Test
+    public void testLoadInvalidSnapshot(@TempDir Path dir) throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> CompiledMarkovChain.load(null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CompiledMarkovChain.load(dir.resolve("missing.bin").toString())
+        );
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CompiledMarkovChain.load("files/simple_test_data.csv")
+        );
+
+        Path truncated = dir.resolve("truncated.bin");
+        illustrativeChain().compile().save(truncated.toString());
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CompiledMarkovChain.load(truncated.toString())
+        );
+    }
+
+    /**
+     * Saves the illustrative chain, overwrites the int at the given index of
+     * the snapshot, and checks that loading the result fails.
+     */
+    private static void assertCorruptIntRejected(Path file, int index, int value)
+            throws IOException {
+        illustrativeChain().compile().save(file.toString());
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        bytes.putInt(index * Integer.BYTES, value);
+        Files.write(file, bytes.array());
+        assertThrows(
+                IllegalArgumentException.class, () -> CompiledMarkovChain.load(file.toString())
+        );
+    }
+
+    @Test
+    public void testLoadCorruptSnapshot(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("corrupt.bin");
+        CompiledMarkovChain compiled = illustrativeChain().compile();
+        int size = compiled.tokenCount();
+        int starts = 1;
+        int edges = compiled.edgeCount();
+        // header, wordOffsets, startTargets, startCumulative
+        int offsets = 7 + (size + 1) + 2 * starts;
+        int targets = offsets + size + 1;
+        int cumulative = targets + edges;
+
+        // a word offset past the word data
+        assertCorruptIntRejected(file, 7 + 1, 1 << 20);
+        // a start token that does not exist
+        assertCorruptIntRejected(file, 7 + size + 1, size);
+        // a row offset that goes backwards, and one past the edges
+        assertCorruptIntRejected(file, offsets + 2, -1);
+        assertCorruptIntRejected(file, offsets + size, edges + 1);
+        // an edge to a token that does not exist
+        assertCorruptIntRejected(file, targets + edges - 1, size + 5);
+        // counts that do not increase
+        assertCorruptIntRejected(file, cumulative, 0);
+
+        // the unmodified snapshot still loads
+        compiled.save(file.toString());
+        assertEquals(edges, CompiledMarkovChain.load(file.toString()).edgeCount());
+    }
+
+    @Test
+    public void testGenerateWalksMatchesIterators() {
+        MarkovChain mc = illustrativeChain();
+        mc.addSequence(Arrays.asList("the", "table", "and", "the", "chair", "!").iterator());
+        CompiledMarkovChain cmc = mc.compile();
+
+        int[] tokens = new int[10_000];
+        int[] offsets = new int[101];
+        assertEquals(100, cmc.generateWalks(new RandomNumberGenerator(1200), 100, tokens, offsets));
+        NumberGenerator ng = new RandomNumberGenerator(1200);
+        for (int i = 0; i < 100; i++) {
+            List<String> walk = new ArrayList<>();
+            for (int t = offsets[i]; t < offsets[i + 1]; t++) {
+                walk.add(cmc.token(tokens[t]));
+            }
+            assertEquals(drain(cmc.getWalk(ng)), walk);
+        }
+    }
+
+    @Test
+    public void testGenerateWalksStopsWhenFull() {
+        CompiledMarkovChain cmc = illustrativeChain().compile();
+        // a chair, then a table and a chair
+        int[] seq = { 1, 2, 0, 0, 3, 0, 0, 2, 0 };
+        int[] tokens = new int[4];
+        int[] offsets = new int[3];
+        assertEquals(1, cmc.generateWalks(new ListNumberGenerator(seq), 2, tokens, offsets));
+        assertEquals(0, offsets[0]);
+        assertEquals(2, offsets[1]);
+        assertEquals("a", cmc.token(tokens[0]));
+        assertEquals("chair", cmc.token(tokens[1]));
+        assertEquals("a chair", TwitterBot.renderTweet(cmc, tokens, offsets[0], offsets[1]));
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> cmc.generateWalks(new ListNumberGenerator(seq), 3, tokens, offsets)
+        );
+        assertThrows(IllegalArgumentException.class, () -> cmc.token(-1));
+        assertThrows(IllegalArgumentException.class, () -> cmc.token(cmc.tokenCount()));
+    }
+
+    @Test
+    public void testGenerateWalksOnEmptyChain() {
+        int[] offsets = new int[4];
+        assertEquals(
+                3, new MarkovChain().compile().generateWalks(
+                        new RandomNumberGenerator(), 3, new int[0], offsets
+                )
+        );
+        assertArrayEquals(new int[4], offsets);
+    }
+
+    @Test
+    public void testMinTokensToEnd() {
+        MarkovChain mc = illustrativeChain();
+        CompiledMarkovChain cmc = mc.compile();
+        // a chair; a banana ?; a table and a chair
+        assertEquals(2, cmc.minTokensToEnd(mc.vocabulary.id("a")));
+        assertEquals(1, cmc.minTokensToEnd(mc.vocabulary.id("chair")));
+        assertEquals(2, cmc.minTokensToEnd(mc.vocabulary.id("banana")));
+        assertEquals(4, cmc.minTokensToEnd(mc.vocabulary.id("table")));
+        assertEquals(0, cmc.minTokensToEnd(mc.endId));
+        assertThrows(IllegalArgumentException.class, () -> cmc.minTokensToEnd(-1));
+    }
+
+    @Test
+    public void testBoundedWalks() {
+        MarkovChain mc = illustrativeChain();
+        mc.addSequence(Arrays.asList("the", "table", "and", "the", "chair", "!").iterator());
+        CompiledMarkovChain cmc = mc.compile();
+        for (long seed = 0; seed < 200; seed++) {
+            // a budget that every walk meets does not change anything
+            assertEquals(
+                    drain(cmc.getWalk(new RandomNumberGenerator(seed))),
+                    drain(cmc.getWalkWithinTokens(new RandomNumberGenerator(seed), 1000))
+            );
+            assertEquals(
+                    drain(cmc.getWalk(new RandomNumberGenerator(seed))),
+                    drain(
+                            cmc.getWalkWithinChars(
+                                    new RandomNumberGenerator(seed), Integer.MAX_VALUE
+                            )
+                    )
+            );
+            for (int budget = 0; budget < 8; budget++) {
+                List<String> walk = drain(
+                        cmc.getWalkWithinTokens(new RandomNumberGenerator(seed), budget)
+                );
+                assertTrue(walk.size() <= budget);
+                assertEquals(budget < 2, walk.isEmpty());
+                walk = drain(cmc.getWalkWithinChars(new RandomNumberGenerator(seed), 4 * budget));
+                assertTrue(String.join(" ", walk).length() <= 4 * budget);
+            }
+        }
+    }
+
+    @Test
+    public void testBoundedWalkChoices() {
+        CompiledMarkovChain cmc = illustrativeChain().compile();
+        // with 3 tokens, "a" can only be followed by banana (2) or chair (1),
+        // so index 2 picks chair
+        assertEquals(
+                Arrays.asList("a", "chair"),
+                drain(cmc.getWalkWithinTokens(new ListNumberGenerator(new int[] { 0, 2, 0 }), 3))
+        );
+        // after "a banana", only "?" can end within 3 tokens, not "!"
+        assertEquals(
+                Arrays.asList("a", "banana", "?"),
+                drain(cmc.getWalkWithinTokens(new ListNumberGenerator(new int[] { 0, 0, 0, 0 }), 3))
+        );
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> cmc.getWalkWithinTokens(new RandomNumberGenerator(), -1)
+        );
+    }
+
+    @Test
+    public void testOffHeapMatchesChain() {
+        MarkovChain mc = illustrativeChain();
+        mc.addSequence(Arrays.asList("the", "table", "and", "the", "chair", "!").iterator());
+        CompiledMarkovChain offHeap = mc.compileOffHeap();
+        assertEquals(mc.compile().edgeCount(), offHeap.edgeCount());
+        for (long seed = 0; seed < 200; seed++) {
+            assertEquals(
+                    drain(mc.getWalk(new RandomNumberGenerator(seed))),
+                    drain(offHeap.getWalk(new RandomNumberGenerator(seed)))
+            );
+        }
+    }
+
+    @Test
+    public void testGet(@TempDir Path dir) {
+        MarkovChain mc = illustrativeChain();
+        String file = dir.resolve("chain.bin").toString();
+        mc.compile().save(file);
+        for (CompiledMarkovChain cmc : Arrays.asList(
+                mc.compile(), mc.compileOffHeap(), CompiledMarkovChain.load(file)
+        )) {
+            for (String word : Arrays.asList("a", "table", "and", "chair", "banana", "!", "?")) {
+                assertEquals(mc.get(word).toString(), cmc.get(word).toString());
+            }
+            assertNull(cmc.get(MarkovChain.END_TOKEN));
+            assertNull(cmc.get("zebra"));
+            assertThrows(IllegalArgumentException.class, () -> cmc.get(null));
+        }
+    }
+
+    @Test
+    public void testLogProbability() {
+        CompiledMarkovChain cmc = illustrativeChain().compile();
+        // a (2/2), chair (1/4), <END> (1/1)
+        assertEquals(Math.log(0.25), cmc.logProbability(Arrays.asList("a", "chair")), 1e-12);
+        // a (2/2), banana (2/4), ? (1/2), <END> (1/1)
+        assertEquals(
+                Math.log(0.25), cmc.logProbability(Arrays.asList("a", "banana", "?")), 1e-12
+        );
+        assertEquals(
+                Double.NEGATIVE_INFINITY, cmc.logProbability(Arrays.asList("a", "table"))
+        );
+        assertEquals(
+                Double.NEGATIVE_INFINITY, cmc.logProbability(Arrays.asList("chair", "a"))
+        );
+        assertEquals(
+                Double.NEGATIVE_INFINITY, cmc.logProbability(Arrays.asList("a", "zebra"))
+        );
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> cmc.logProbability(Collections.emptyList())
+        );
+    }
+
+    @Test
+    public void testLogProbabilitiesMatchWalkChoices() {
+        List<List<String>> corpus = TweetParser.csvDataToTrainingData(
+                FileUtilities.fileToReader("files/dog_feelings_tweets.csv"), 2
+        );
+        MarkovChain mc = new MarkovChain(corpus);
+        CompiledMarkovChain cmc = mc.compile();
+        double[] logs = cmc.logProbabilities(new LinkedList<>(corpus));
+        assertEquals(corpus.size(), logs.length);
+
+        double sum = 0;
+        int predictions = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            // the probability of a walk is the product of count / total of
+            // each of its steps
+            double expected = 0;
+            List<String> sentence = corpus.get(i);
+            expected += Math.log(
+                    mc.startTokens.count(sentence.get(0)) / (double) mc.startTokens.getTotal()
+            );
+            for (int w = 0; w < sentence.size(); w++) {
+                ProbabilityDistribution<String> pd = mc.get(sentence.get(w));
+                String next = w + 1 < sentence.size() ? sentence.get(w + 1)
+                        : MarkovChain.END_TOKEN;
+                expected += Math.log(pd.count(next) / (double) pd.getTotal());
+            }
+            assertEquals(expected, logs[i], 1e-9);
+            sum += expected;
+            predictions += sentence.size() + 1;
+        }
+        assertEquals(Math.exp(-sum / predictions), cmc.perplexity(corpus), 1e-9);
+        // scoring searches the rows wherever they are kept
+        assertArrayEquals(logs, mc.compileOffHeap().logProbabilities(corpus));
+    }
+
+    @Test
+    public void testPerplexity() {
+        MarkovChain mc = new MarkovChain();
+        mc.addSequence(Arrays.asList("a", "b").iterator());
+        mc.addSequence(Arrays.asList("a", "c").iterator());
+        CompiledMarkovChain cmc = mc.compile();
+        // each sentence is 1 * 1/2 * 1 over three predictions
+        List<List<String>> corpus = Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("a", "c"));
+        assertEquals(Math.pow(2, 1.0 / 3), cmc.perplexity(corpus), 1e-12);
+        assertEquals(
+                Double.POSITIVE_INFINITY,
+                cmc.perplexity(Collections.singletonList(Arrays.asList("b", "a")))
+        );
+        assertThrows(IllegalArgumentException.class, () -> cmc.perplexity(Collections.emptyList()));
+    }
+}
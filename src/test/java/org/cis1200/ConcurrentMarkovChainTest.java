@@ -0,0 +1,90 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.cis1200.Walks.drain;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for ConcurrentMarkovChain */
+public class ConcurrentMarkovChainTest {
+
+    private static List<List<String>> corpus() {
+        return TweetParser.csvDataToTrainingData(
+                FileUtilities.fileToReader("files/dog_feelings_tweets.csv"), 2
+        );
+    }
+
+    @Test
+    public void testInvalidStripes() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMarkovChain(0));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMarkovChain(1 << 17));
+        assertEquals(8, new ConcurrentMarkovChain(5).stripeCount());
+        assertEquals(1, new ConcurrentMarkovChain(1).stripeCount());
+    }
+
+    @Test
+    public void testSnapshotMatchesMarkovChain() {
+        for (int stripes : new int[] { 1, 4, 64 }) {
+            ConcurrentMarkovChain cmc = new ConcurrentMarkovChain(stripes);
+            MarkovChain expected = new MarkovChain();
+            for (List<String> sentence : corpus()) {
+                cmc.addSequence(sentence.iterator());
+                expected.addSequence(sentence.iterator());
+            }
+            cmc.addSequence(Collections.<String>emptyList().iterator());
+            cmc.addSequence(Arrays.asList(MarkovChain.END_TOKEN, "ignored").iterator());
+            MarkovChain snapshot = cmc.snapshot();
+            assertEquals(expected.toString(), snapshot.toString());
+            for (long seed = 0; seed < 20; seed++) {
+                assertEquals(
+                        drain(expected.getWalk(new RandomNumberGenerator(seed))),
+                        drain(snapshot.getWalk(new RandomNumberGenerator(seed)))
+                );
+            }
+        }
+    }
+
+    @Test
+    public void testAddBigram() {
+        ConcurrentMarkovChain cmc = new ConcurrentMarkovChain();
+        cmc.addBigram("a", "b");
+        cmc.addBigram("a", "b");
+        cmc.addBigram("a", "c");
+        MarkovChain mc = cmc.snapshot();
+        assertEquals(2, mc.get("a").count("b"));
+        assertEquals(1, mc.get("a").count("c"));
+        assertEquals(0, mc.startTokens.getTotal());
+        assertThrows(IllegalArgumentException.class, () -> cmc.addBigram(null, "a"));
+        assertThrows(IllegalArgumentException.class, () -> cmc.addSequence(null));
+    }
+
+    @Test
+    public void testConcurrentTraining() throws InterruptedException {
+        List<List<String>> corpus = corpus();
+        MarkovChain expected = new MarkovChain();
+        for (int copy = 0; copy < 4; copy++) {
+            expected.train(corpus.iterator());
+        }
+
+        ConcurrentMarkovChain cmc = new ConcurrentMarkovChain(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (List<String> sentence : corpus) {
+                    cmc.addSequence(sentence.iterator());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        // snapshots taken while training must not disturb it
+        for (int i = 0; i < 10; i++) {
+            cmc.snapshot();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(expected.toString(), cmc.snapshot().toString());
+    }
+}
@@ -0,0 +1,111 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for CsvColumnIterator */
+public class CsvColumnIteratorTest {
+
+    private static List<String> column(String csv, int column) {
+        List<String> fields = new ArrayList<>();
+        new CsvColumnIterator(new BufferedReader(new StringReader(csv)), column)
+                .forEachRemaining(fields::add);
+        return fields;
+    }
+
+    /**
+     * A reader that hands out one character per read, so every character
+     * falls on a buffer boundary.
+     */
+    private static BufferedReader trickle(String csv) {
+        return new BufferedReader(new FilterReader(new StringReader(csv)) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 1));
+            }
+        }, 1);
+    }
+
+    @Test
+    public void testUnquotedFields() {
+        assertEquals(Arrays.asList("b", "e"), column("a,b,c\nd,e,f\n", 1));
+        assertEquals(Arrays.asList("c", "f"), column("a,b,c\nd,e,f", 2));
+        assertEquals(Arrays.asList("a", "", "d"), column("a,b\n\nd", 0));
+    }
+
+    @Test
+    public void testQuotedFields() {
+        assertEquals(
+                Arrays.asList("one, two", "say \"hi\"", "line\nbreak", ""),
+                column(
+                        "0,\"one, two\",x\n1,\"say \"\"hi\"\"\"\n2,\"line\nbreak\"\n3,\"\"\n", 1
+                )
+        );
+        // quotes that do not start a field are ordinary characters
+        assertEquals(Arrays.asList("a\"b", " \"c"), column("0,a\"b\n1, \"c", 1));
+        // text after a closing quote is kept
+        assertEquals(Collections.singletonList("ab"), column("0,\"a\"b,c", 1));
+        // an unterminated quote runs to the end of the input
+        assertEquals(Collections.singletonList("a,\nb"), column("0,\"a,\nb", 1));
+    }
+
+    @Test
+    public void testLineBreaks() {
+        assertEquals(Arrays.asList("a", "b", "c", "d"), column("a\r\nb\rc\nd\r\n", 0));
+        List<String> fields = new ArrayList<>();
+        new CsvColumnIterator(trickle("0,a\r\n1,\"b\r\nc\"\r2,d\r"), 1)
+                .forEachRemaining(fields::add);
+        assertEquals(Arrays.asList("a", "b\r\nc", "d"), fields);
+    }
+
+    @Test
+    public void testRecordsWithoutColumnAreSkipped() {
+        assertEquals(Arrays.asList("x", "y"), column("0\n1,x\n2\n\n3,y,z", 1));
+        assertTrue(column("", 0).isEmpty());
+        assertTrue(column("a,b\nc", 5).isEmpty());
+    }
+
+    @Test
+    public void testNextSequenceReusesBuffer() {
+        CsvColumnIterator it = new CsvColumnIterator(
+                new BufferedReader(new StringReader("0,a\n1\n2,\"b,c\"\n")), 1
+        );
+        CharSequence first = it.nextSequence();
+        assertEquals("a", first.toString());
+        CharSequence second = it.nextSequence();
+        assertSame(first, second);
+        assertEquals("b,c", second.toString());
+        assertNull(it.nextSequence());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new CsvColumnIterator(null, 0));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new CsvColumnIterator(new BufferedReader(new StringReader("a")), -1)
+        );
+        CsvColumnIterator it = new CsvColumnIterator(new BufferedReader(new StringReader("a")), 0);
+        assertEquals("a", it.next());
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @Test
+    public void testQuotedTweetsInBundledFile() {
+        CsvColumnIterator tweets = new CsvColumnIterator(
+                FileUtilities.fileToReader("files/dog_feelings_tweets.csv"), 2
+        );
+        assertEquals(
+                "RT @dog_rates: In honor of #NationalPuppyDay, please reply with a pic of "
+                        + "your puppy (every dog is a puppy) ❤️",
+                tweets.next()
+        );
+        assertEquals("@dog_rates love. and loss", tweets.next());
+    }
+}
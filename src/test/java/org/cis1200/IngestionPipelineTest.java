@@ -0,0 +1,87 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for IngestionPipeline */
+public class IngestionPipelineTest {
+
+    private static final String FILE = "files/dog_feelings_tweets.csv";
+
+    @Test
+    public void testSameCountsAsSequentialTraining() {
+        List<List<String>> trainingData = TweetParser
+                .csvDataToTrainingData(FileUtilities.fileToReader(FILE), 2);
+        MarkovChain sequential = new MarkovChain(trainingData);
+
+        // a small queue and odd batch size so the stages block on each other
+        IngestionPipeline pipeline = new IngestionPipeline(3, 2, 7);
+        MarkovChain pipelined = pipeline.run(FileUtilities.fileToReader(FILE), 2);
+        assertEquals(sequential.toString(), pipelined.toString());
+
+        IngestionStats stats = pipeline.getStats();
+        assertEquals(3, stats.getParseWorkers());
+        assertEquals(
+                TweetParser.csvDataToTweets(FileUtilities.fileToReader(FILE), 2).size(),
+                stats.getTweets()
+        );
+        assertEquals(trainingData.size(), stats.getSentences());
+        assertTrue(stats.getMaxParseQueueDepth() <= 2);
+        assertTrue(stats.getMaxTrainQueueDepth() <= 2);
+        assertTrue(stats.getMeanParseQueueDepth() <= stats.getMaxParseQueueDepth());
+        assertTrue(stats.getParseNanos() > 0);
+        assertTrue(stats.getTrainNanos() > 0);
+        assertTrue(stats.getElapsedNanos() >= stats.getTrainNanos());
+        assertTrue(stats.toString().startsWith(stats.getTweets() + " tweets"));
+    }
+
+    @Test
+    public void testEmptyInput() {
+        IngestionPipeline pipeline = new IngestionPipeline();
+        assertNull(pipeline.getStats());
+        MarkovChain mc = pipeline.run(new BufferedReader(new StringReader("")), 1);
+        assertTrue(mc.bigramFrequencies.isEmpty());
+        assertEquals(0, pipeline.getStats().getTweets());
+        assertEquals(0, pipeline.getStats().getSentences());
+    }
+
+    @Test
+    public void testFailedRunClosesReader() {
+        // fails on the second chunk, long before the input is exhausted
+        String csv = "a, a tweet\n".repeat(100_000);
+        BufferedReader br = new BufferedReader(new StringReader(csv)) {
+            private int reads;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (++reads > 1) {
+                    throw new IllegalStateException("bad chunk");
+                }
+                return super.read(cbuf, off, len);
+            }
+        };
+        IngestionPipeline pipeline = new IngestionPipeline(2, 1, 1);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pipeline.run(br, 1));
+        assertTrue(e.getMessage().contains("bad chunk"));
+        assertThrows(IOException.class, br::ready);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new IngestionPipeline(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new IngestionPipeline(1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new IngestionPipeline(1, 1, 0));
+        IngestionPipeline pipeline = new IngestionPipeline(1, 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.run(null, 1));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> pipeline.run(new BufferedReader(new StringReader("a")), -1)
+        );
+    }
+}
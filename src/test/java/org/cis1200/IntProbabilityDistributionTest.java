@@ -0,0 +1,242 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for IntProbabilityDistribution */
+public class IntProbabilityDistributionTest {
+
+    @Test
+    public void testEmptyDistribution() {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution();
+        assertEquals(0, pd.getTotal());
+        assertEquals(0, pd.size());
+        assertEquals(0, pd.count(7));
+        assertThrows(IllegalArgumentException.class, () -> pd.pick(0));
+        assertThrows(IllegalArgumentException.class, () -> pd.index(7));
+    }
+
+    @Test
+    public void testRecordAndPick() {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution();
+        pd.record(30);
+        pd.record(10);
+        pd.record(20);
+        pd.record(10);
+
+        assertEquals(4, pd.getTotal());
+        assertEquals(3, pd.size());
+        assertEquals(2, pd.count(10));
+        assertEquals(10, pd.pick(0));
+        assertEquals(10, pd.pick(1));
+        assertEquals(20, pd.pick(2));
+        assertEquals(30, pd.pick(3));
+        assertEquals(0, pd.index(10));
+        assertEquals(2, pd.index(20));
+        assertEquals(3, pd.index(30));
+        assertThrows(IllegalArgumentException.class, () -> pd.pick(4));
+        assertThrows(IllegalArgumentException.class, () -> pd.pick(-1));
+    }
+
+    @Test
+    public void testRecordAfterPick() {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution();
+        pd.record(5);
+        assertEquals(5, pd.pick(0));
+        pd.record(1);
+        pd.record(5);
+        assertEquals(1, pd.pick(0));
+        assertEquals(5, pd.pick(2));
+        assertEquals(1, pd.index(5));
+    }
+
+    @Test
+    public void testInterleavedRecordsAndPicks() {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution((a, b) -> b - a);
+        TreeMap<Integer, Integer> expected = new TreeMap<>(Comparator.reverseOrder());
+        Random random = new Random(1200);
+        for (int i = 0; i < 3000; i++) {
+            int key = random.nextInt(i < 1500 ? 60 : 200);
+            int count = 1 + random.nextInt(3);
+            pd.record(key, count);
+            expected.merge(key, count, Integer::sum);
+            // every pick is checked against the counts so far, whether the
+            // record updated the tree or inserted a new key
+            int index = random.nextInt(pd.getTotal());
+            int sum = 0;
+            for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+                if (index < sum + e.getValue()) {
+                    assertEquals(e.getKey(), pd.pick(index));
+                    assertEquals(sum, pd.index(e.getKey()));
+                    break;
+                }
+                sum += e.getValue();
+            }
+        }
+        int position = 0;
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertEquals(e.getKey(), pd.keyAt(position));
+            assertEquals(e.getValue(), pd.countAt(position++));
+        }
+        assertEquals(expected.size(), pd.size());
+    }
+
+    @Test
+    public void testSealedDistributionIsReadConcurrently() throws InterruptedException {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution();
+        for (int key = 0; key < 500; key++) {
+            pd.record(499 - key, key % 7 + 1);
+        }
+        pd.seal();
+        int[] expected = new int[pd.getTotal()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = pd.pick(i);
+        }
+        List<Thread> readers = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int r = 0; r < 4; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < expected.length; i++) {
+                        assertEquals(expected[i], pd.pick(i));
+                        assertTrue(pd.index(expected[i]) <= i);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(failures.isEmpty(), failures::toString);
+
+        // recording after sealing is picked up by the next read
+        pd.record(1000);
+        pd.record(0, 3);
+        assertEquals(1000, pd.pick(pd.getTotal() - 1));
+        assertEquals(0, pd.pick(3));
+        assertEquals(6, pd.index(1));
+    }
+
+    @Test
+    public void testCustomKeyOrder() {
+        IntProbabilityDistribution pd = new IntProbabilityDistribution((a, b) -> b - a);
+        pd.record(1);
+        pd.record(2);
+        pd.record(3);
+        assertEquals(3, pd.pick(0));
+        assertEquals(1, pd.pick(2));
+        assertEquals(3, pd.keyAt(0));
+        assertEquals(1, pd.countAt(0));
+    }
+
+    @Test
+    public void testMatchesProbabilityDistribution() {
+        ProbabilityDistribution<Integer> expected = new ProbabilityDistribution<>();
+        IntProbabilityDistribution actual = new IntProbabilityDistribution();
+        Random random = new Random(1200);
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(400) - 50;
+            expected.record(key);
+            actual.record(key);
+        }
+
+        assertEquals(expected.getTotal(), actual.getTotal());
+        assertEquals(expected.keySet().size(), actual.size());
+        assertEquals(expected.toString(), actual.toString());
+        for (int i = 0; i < expected.getTotal(); i++) {
+            assertEquals(expected.pick(i), actual.pick(i));
+        }
+        for (int key : expected.keySet()) {
+            assertEquals(expected.index(key), actual.index(key));
+            assertEquals(expected.count(key), actual.count(key));
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        IntProbabilityDistribution a = new IntProbabilityDistribution();
+        IntProbabilityDistribution b = new IntProbabilityDistribution();
+        IntProbabilityDistribution both = new IntProbabilityDistribution();
+        Random random = new Random(120);
+        for (int i = 0; i < 300; i++) {
+            int key = random.nextInt(50);
+            (i % 3 == 0 ? a : b).record(key);
+            both.record(key);
+        }
+        a.merge(b, null);
+        assertEquals(both.getTotal(), a.getTotal());
+        assertEquals(both.toString(), a.toString());
+        for (int i = 0; i < both.getTotal(); i++) {
+            assertEquals(both.pick(i), a.pick(i));
+        }
+    }
+
+    @Test
+    public void testMergeWithKeyMap() {
+        IntProbabilityDistribution a = new IntProbabilityDistribution();
+        a.record(10);
+        a.record(30);
+        IntProbabilityDistribution b = new IntProbabilityDistribution();
+        b.record(0, 2);
+        b.record(1);
+        // b's key 0 is a's key 20, b's key 1 is a's key 30
+        a.merge(b, new int[] { 20, 30 });
+        assertEquals(5, a.getTotal());
+        assertEquals(2, a.count(20));
+        assertEquals(2, a.count(30));
+        assertEquals(10, a.pick(0));
+        assertEquals(20, a.pick(2));
+        assertEquals(30, a.pick(4));
+        assertThrows(IllegalArgumentException.class, () -> a.merge(a, null));
+    }
+
+    @Test
+    public void testSubtract() {
+        IntProbabilityDistribution a = new IntProbabilityDistribution();
+        IntProbabilityDistribution b = new IntProbabilityDistribution();
+        IntProbabilityDistribution rest = new IntProbabilityDistribution();
+        Random random = new Random(1200);
+        for (int i = 0; i < 300; i++) {
+            int key = random.nextInt(50);
+            if (i % 3 == 0) {
+                b.record(key);
+            } else {
+                rest.record(key);
+            }
+        }
+        a.merge(rest, null);
+        a.merge(b, null);
+        a.subtract(b, null);
+        assertEquals(rest.getTotal(), a.getTotal());
+        assertEquals(rest.toString(), a.toString());
+        for (int i = 0; i < rest.getTotal(); i++) {
+            assertEquals(rest.pick(i), a.pick(i));
+        }
+
+        a.subtract(rest, null);
+        assertEquals(0, a.getTotal());
+        assertEquals(0, a.size());
+        a.record(7);
+        assertEquals(7, a.pick(0));
+    }
+
+    @Test
+    public void testSubtractTooMuch() {
+        IntProbabilityDistribution a = new IntProbabilityDistribution();
+        a.record(1);
+        a.record(2);
+        IntProbabilityDistribution b = new IntProbabilityDistribution();
+        b.record(1);
+        b.record(2, 2);
+        assertThrows(IllegalArgumentException.class, () -> a.subtract(b, null));
+        assertEquals(2, a.getTotal());
+        assertEquals(1, a.count(1));
+        assertThrows(IllegalArgumentException.class, () -> a.subtract(a, null));
+    }
+}
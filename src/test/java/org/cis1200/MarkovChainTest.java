@@ -2,6 +2,9 @@ package org.cis1200;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -361,4 +364,306 @@ public class MarkovChainTest {
                 MarkovChain.END_TOKEN, firstToken
         );
     }
-}
\ No newline at end of file
+
+    /* **** ****** ****** PARALLEL TRAINING TESTS ***** ****** ***** */
+
+    @Test
+    public void testTrainParallelMatchesSequential() {
+        List<List<String>> trainingData = new ArrayList<>();
+        Random random = new Random(1200);
+        for (int i = 0; i < 500; i++) {
+            List<String> sentence = new ArrayList<>();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sentence.add("w" + random.nextInt(40));
+            }
+            trainingData.add(sentence);
+        }
+        MarkovChain sequential = new MarkovChain(trainingData);
+        MarkovChain parallel = MarkovChain.trainParallel(trainingData, 4);
+
+        assertEquals(sequential.toString(), parallel.toString());
+        for (long seed = 0; seed < 50; seed++) {
+            Iterator<String> expected = sequential.getWalk(new RandomNumberGenerator(seed));
+            Iterator<String> actual = parallel.getWalk(new RandomNumberGenerator(seed));
+            while (expected.hasNext()) {
+                assertEquals(expected.next(), actual.next());
+            }
+            assertFalse(actual.hasNext());
+        }
+    }
+
+    @Test
+    public void testTrainParallelEmptyAndInvalid() {
+        MarkovChain mc = MarkovChain.trainParallel(new LinkedList<>(), 2);
+        assertTrue(mc.bigramFrequencies.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> MarkovChain.trainParallel(null, 2));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MarkovChain.trainParallel(new LinkedList<>(), 0)
+        );
+    }
+
+    /* **** ****** ****** MERGE TESTS ***** ****** ***** */
+
+    private static MarkovChain chainOf(Vocabulary v, String... sentences) {
+        MarkovChain mc = v == null ? new MarkovChain() : new MarkovChain(v);
+        for (String sentence : sentences) {
+            mc.addSequence(Arrays.stream(sentence.split(" ")).iterator());
+        }
+        return mc;
+    }
+
+    @Test
+    public void testMergeMatchesTrainingOnBoth() {
+        MarkovChain a = chainOf(null, "a table and a chair", "the dog barks");
+        MarkovChain b = chainOf(null, "a banana ! and a banana ?", "the cat and a dog");
+        MarkovChain both = chainOf(
+                null, "a table and a chair", "the dog barks",
+                "a banana ! and a banana ?", "the cat and a dog"
+        );
+        a.merge(b);
+        assertEquals(both.toString(), a.toString());
+        assertEquals(4, a.startTokens.getTotal());
+        assertEquals(3, a.get("a").count("banana") + a.get("a").count("dog"));
+        // the merged chain can still be trained and walked
+        a.addSequence(Arrays.asList("a", "zebra").iterator());
+        assertEquals(1, a.get("a").count("zebra"));
+        List<Integer> choices = a.findWalkChoices(new ArrayList<>(Arrays.asList("a", "zebra")));
+        Iterator<String> walk = a.getWalk(new ListNumberGenerator(choices));
+        assertEquals("a", walk.next());
+        assertEquals("zebra", walk.next());
+        assertFalse(walk.hasNext());
+    }
+
+    @Test
+    public void testMergeIsAssociative() {
+        String[] s1 = { "x y z", "y x" };
+        String[] s2 = { "z z y", "x" };
+        String[] s3 = { "y z x y", "w x" };
+
+        MarkovChain left = chainOf(null, s1);
+        MarkovChain leftTail = chainOf(null, s2);
+        left.merge(leftTail);
+        left.merge(chainOf(null, s3));
+
+        MarkovChain rightTail = chainOf(null, s2);
+        rightTail.merge(chainOf(null, s3));
+        MarkovChain right = chainOf(null, s1);
+        right.merge(rightTail);
+
+        assertEquals(left.toString(), right.toString());
+    }
+
+    @Test
+    public void testMergeSharedVocabularyLeavesOtherUnchanged() {
+        Vocabulary v = new Vocabulary();
+        MarkovChain a = chainOf(v, "hello world");
+        MarkovChain b = chainOf(v, "hello there world");
+        String before = b.toString();
+        a.merge(b);
+        assertEquals(before, b.toString());
+        assertEquals(1, a.get("hello").count("world"));
+        assertEquals(1, a.get("hello").count("there"));
+        assertEquals(2, a.get("world").count(MarkovChain.END_TOKEN));
+        assertEquals(2, a.startTokens.count("hello"));
+    }
+
+    @Test
+    public void testMergeInvalid() {
+        MarkovChain mc = new MarkovChain();
+        assertThrows(IllegalArgumentException.class, () -> mc.merge(null));
+        assertThrows(IllegalArgumentException.class, () -> mc.merge(mc));
+    }
+
+    @Test
+    public void testFindWalkChoicesLeavesInputUnchanged() {
+        MarkovChain mc = chainOf(null, "CIS 1200 rocks", "CIS 1200 beats CIS 1600");
+        List<String> words = Collections.unmodifiableList(Arrays.asList("CIS", "1200", "rocks"));
+        assertEquals(Arrays.asList(0, 0, 1, 0), mc.findWalkChoices(words));
+        assertEquals(Arrays.asList("CIS", "1200", "rocks"), words);
+    }
+
+    @Test
+    public void testEncodeDecodeWalksRoundTrip() {
+        List<List<String>> corpus = TweetParser.csvDataToTrainingData(
+                FileUtilities.fileToReader("files/dog_feelings_tweets.csv"), 2
+        );
+        MarkovChain mc = new MarkovChain(corpus);
+        EncodedWalks walks = mc.encodeWalks(corpus);
+        assertEquals(corpus.size(), walks.size());
+
+        int words = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            words += corpus.get(i).size();
+            assertEquals(
+                    mc.findWalkChoices(corpus.get(i)),
+                    Arrays.stream(walks.getChoices(i)).boxed().toList()
+            );
+        }
+        assertEquals(words + corpus.size(), walks.choiceCount());
+        assertEquals(corpus, mc.decodeWalks(walks));
+
+        Iterator<String> walk = mc.getWalk(new ListNumberGenerator(walks.getChoices(3)));
+        for (String word : corpus.get(3)) {
+            assertEquals(word, walk.next());
+        }
+        assertFalse(walk.hasNext());
+    }
+
+    @Test
+    public void testEncodeWalksInvalid() {
+        MarkovChain mc = chainOf(null, "a b", "b c");
+        assertThrows(IllegalArgumentException.class, () -> mc.encodeWalks(null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mc.encodeWalks(Collections.singletonList(Collections.emptyList()))
+        );
+        // c never starts a sentence
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mc.encodeWalks(Collections.singletonList(Arrays.asList("c")))
+        );
+        // a is never followed by c
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mc.encodeWalks(Collections.singletonList(Arrays.asList("a", "c")))
+        );
+    }
+
+    @Test
+    public void testDecodeWalksInvalid() {
+        MarkovChain mc = chainOf(null, "a b", "b c");
+        // a b <END> is { 0, 0, 0 }
+        assertEquals(
+                Collections.singletonList(Arrays.asList("a", "b")),
+                mc.decodeWalks(new EncodedWalks(new int[] { 0, 0, 0 }, new int[] { 0, 3 }))
+        );
+        // out of range
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mc.decodeWalks(new EncodedWalks(new int[] { 0, 5, 0 }, new int[] { 0, 3 }))
+        );
+        // does not reach END_TOKEN
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mc.decodeWalks(new EncodedWalks(new int[] { 0, 0 }, new int[] { 0, 2 }))
+        );
+        // continues after END_TOKEN
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mc.decodeWalks(new EncodedWalks(new int[] { 0, 0, 0, 0 }, new int[] { 0, 4 }))
+        );
+        // has no choices at all, even when it is not the first walk
+        IllegalArgumentException empty = assertThrows(
+                IllegalArgumentException.class,
+                () -> mc.decodeWalks(new EncodedWalks(new int[] { 0, 0, 0 }, new int[] { 0, 3, 3 }))
+        );
+        assertEquals("Walk 1 has no choices", empty.getMessage());
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new EncodedWalks(new int[] { 0, 0 }, new int[] { 0, 3 })
+        );
+    }
+
+    @Test
+    public void testSubtractUndoesMerge() {
+        MarkovChain expected = chainOf(null, "x y z", "y x");
+        MarkovChain mc = chainOf(null, "x y z", "y x");
+        MarkovChain other = chainOf(null, "z z y", "w x", "x y");
+        mc.merge(other);
+        mc.subtract(other);
+        assertEquals(expected.toString(), mc.toString());
+        assertFalse(mc.bigramFrequencies.containsKey("w"));
+        assertEquals(0, mc.startTokens.count("w"));
+        assertEquals(3, mc.bigramFrequencies.size());
+        assertEquals("z", mc.get("y").pick(1));
+    }
+
+    @Test
+    public void testSubtractInvalid() {
+        MarkovChain mc = chainOf(null, "a b");
+        String before = mc.toString();
+        assertThrows(IllegalArgumentException.class, () -> mc.subtract(null));
+        assertThrows(IllegalArgumentException.class, () -> mc.subtract(mc));
+        assertThrows(IllegalArgumentException.class, () -> mc.subtract(chainOf(null, "a c")));
+        assertThrows(IllegalArgumentException.class, () -> mc.subtract(chainOf(null, "a b", "a b")));
+        assertEquals(before, mc.toString());
+    }
+
+    @Test
+    public void testStats() {
+        MarkovChain mc = chainOf(null, "a table and a chair", "a banana ! and a banana ?");
+        ChainStats stats = mc.getStats();
+        // a, table, and, chair, banana, !, ? and <END>
+        assertEquals(8, stats.getVocabularySize());
+        assertEquals(1, stats.getStartTokenCount());
+        assertEquals(2, stats.getStartTotal());
+        assertEquals(7, stats.getRowCount());
+        assertEquals(10, stats.getEdgeCount());
+        assertEquals(12, stats.getBigramTotal());
+        assertEquals(3, stats.getMaxOutDegree());
+        // five tokens have one successor, banana has two and a has three
+        assertArrayEquals(new int[] { 5, 2 }, stats.getOutDegreeHistogram());
+        assertTrue(stats.getVocabularyBytes() > 0);
+        assertTrue(stats.getStartTokensBytes() > 0);
+        assertTrue(stats.getBigramFrequenciesBytes() > 0);
+        assertEquals(0, stats.getFrozenBytes());
+
+        mc.freeze();
+        assertTrue(mc.getStats().getFrozenBytes() > 0);
+        assertEquals(
+                stats.getTotalBytes() + mc.getStats().getFrozenBytes(),
+                mc.getStats().getTotalBytes()
+        );
+
+        mc.addSequence(Arrays.asList("the", "table", "and", "the", "chair").iterator());
+        ChainStats grown = mc.getStats();
+        assertEquals(0, grown.getFrozenBytes());
+        assertEquals(9, grown.getVocabularySize());
+        assertTrue(grown.getTotalBytes() > stats.getTotalBytes());
+    }
+
+    @Test
+    public void testStatsOfEmptyChain() {
+        ChainStats stats = new MarkovChain().getStats();
+        assertEquals(1, stats.getVocabularySize());
+        assertEquals(0, stats.getEdgeCount());
+        assertEquals(0, stats.getOutDegreeHistogram().length);
+        assertTrue(stats.toString().contains("edges: 0"));
+    }
+
+    @Test
+    public void testTrainFromCsvMatchesSentences() {
+        String[] files = {
+            "files/dog_feelings_tweets.csv", "files/noaa_tweets.csv", "files/empty.csv"
+        };
+        for (String file : files) {
+            MarkovChain expected = new MarkovChain();
+            expected.train(TweetParser.csvDataToSentences(FileUtilities.fileToReader(file), 2));
+            MarkovChain actual = new MarkovChain();
+            actual.train(FileUtilities.fileToReader(file), 2);
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.vocabulary.size(), actual.vocabulary.size());
+            for (int id = 0; id < expected.vocabulary.size(); id++) {
+                assertEquals(expected.vocabulary.word(id), actual.vocabulary.word(id));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MarkovChain().train(null, 2));
+    }
+
+    @Test
+    public void testTrainFromCsvClosesReader() {
+        BufferedReader br = new BufferedReader(new StringReader("0, a b.\n1, c d."));
+        MarkovChain mc = new MarkovChain();
+        mc.train(br, 1);
+        assertEquals(1, mc.bigramFrequencies.get("a").count("b"));
+        assertThrows(IOException.class, br::read);
+
+        BufferedReader unread = new BufferedReader(new StringReader("0, a b."));
+        MarkovChain empty = new MarkovChain();
+        empty.train(unread, -1);
+        assertTrue(empty.bigramFrequencies.isEmpty());
+        assertThrows(IOException.class, unread::read);
+    }
+}
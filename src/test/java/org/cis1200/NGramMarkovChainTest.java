@@ -0,0 +1,156 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.cis1200.Walks.drain;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for NGramMarkovChain and LongIntHashMap */
+public class NGramMarkovChainTest {
+
+    private static final String[] SENTENCES = {
+        "a table and a chair",
+        "a banana ! and a banana ?",
+        "the dog and a cat",
+        "a cat and the dog and a chair"
+    };
+
+    private static List<List<String>> trainingData() {
+        List<List<String>> data = new ArrayList<>();
+        for (String s : SENTENCES) {
+            data.add(Arrays.asList(s.split(" ")));
+        }
+        return data;
+    }
+
+    @Test
+    public void testLongIntHashMap() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (long k = -500; k < 500; k++) {
+            map.put(k * 0x100000001L, (int) k);
+        }
+        assertEquals(1000, map.size());
+        for (long k = -500; k < 500; k++) {
+            assertEquals((int) k, map.get(k * 0x100000001L, 12345));
+        }
+        assertEquals(-1, map.get(7, -1));
+        map.put(0, 42);
+        assertEquals(42, map.get(0, -1));
+        assertEquals(1000, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    public void testInvalidOrder() {
+        assertThrows(IllegalArgumentException.class, () -> new NGramMarkovChain(1));
+        assertThrows(IllegalArgumentException.class, () -> new NGramMarkovChain(6));
+    }
+
+    @Test
+    public void testOrderTwoMatchesMarkovChain() {
+        MarkovChain mc = new MarkovChain(trainingData());
+        NGramMarkovChain ngram = new NGramMarkovChain(2);
+        ngram.train(trainingData().iterator());
+        for (long seed = 0; seed < 100; seed++) {
+            assertEquals(
+                    drain(mc.getWalk(new RandomNumberGenerator(seed))),
+                    drain(ngram.getWalk(new RandomNumberGenerator(seed)))
+            );
+        }
+    }
+
+    @Test
+    public void testOrderThreeContexts() {
+        NGramMarkovChain ngram = new NGramMarkovChain(3);
+        ngram.train(trainingData().iterator());
+        assertEquals(3, ngram.getOrder());
+
+        ProbabilityDistribution<String> starts = ngram.get(Collections.emptyList());
+        assertEquals(4, starts.getTotal());
+        assertEquals(3, starts.count("a"));
+
+        // sentence-initial context of one token
+        ProbabilityDistribution<String> afterA = ngram.get(Collections.singletonList("a"));
+        assertEquals(1, afterA.count("table"));
+        assertEquals(1, afterA.count("banana"));
+        assertEquals(1, afterA.count("cat"));
+
+        ProbabilityDistribution<String> afterAndA = ngram.get(Arrays.asList("and", "a"));
+        assertEquals(2, afterAndA.count("chair"));
+        assertEquals(1, afterAndA.count("banana"));
+        assertEquals(1, afterAndA.count("cat"));
+
+        assertEquals(2, ngram.get(Arrays.asList("a", "chair")).count(MarkovChain.END_TOKEN));
+        assertNull(ngram.get(Arrays.asList("chair", "a")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> ngram.get(Arrays.asList("a", "b", "c"))
+        );
+    }
+
+    @Test
+    public void testOrderThreeWalk() {
+        NGramMarkovChain ngram = new NGramMarkovChain(3);
+        ngram.train(trainingData().iterator());
+        // a (start: index 0 of {a:3, the:1}), then after [a]: banana, then
+        // after [a banana]: !, after [banana !]: and, after [! and]: a, after
+        // [and a]: banana (index 0 of {banana, cat, chair}), after
+        // [a banana]: ?, then <END>
+        int[] choices = { 0, 0, 0, 0, 0, 0, 1, 0 };
+        assertEquals(
+                Arrays.asList("a", "banana", "!", "and", "a", "banana", "?"),
+                drain(ngram.getWalk(new ListNumberGenerator(choices)))
+        );
+    }
+
+    @Test
+    public void testWalksOnlyUseSeenNGrams() {
+        for (int order = NGramMarkovChain.MIN_ORDER; order <= NGramMarkovChain.MAX_ORDER; order++) {
+            NGramMarkovChain ngram = new NGramMarkovChain(order);
+            ngram.train(trainingData().iterator());
+            for (long seed = 0; seed < 50; seed++) {
+                List<String> walk = drain(ngram.getWalk(new RandomNumberGenerator(seed)));
+                assertFalse(walk.isEmpty());
+                List<String> context = new ArrayList<>();
+                for (String token : walk) {
+                    assertTrue(ngram.get(context).count(token) > 0);
+                    context.add(token);
+                    if (context.size() == order) {
+                        context.remove(0);
+                    }
+                }
+                assertTrue(ngram.get(context).count(MarkovChain.END_TOKEN) > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testPrefixOnlyContexts() {
+        NGramMarkovChain ngram = new NGramMarkovChain(3);
+        ngram.addSequence(Arrays.asList("a", "b", "c").iterator());
+        // [], [a], [a b], [b] and [b c]; nothing is recorded after [b], which
+        // only exists as the prefix of [b c]
+        assertEquals(5, ngram.contextCount());
+        ProbabilityDistribution<String> afterB = ngram.get(Collections.singletonList("b"));
+        assertEquals(0, afterB.getTotal());
+        assertEquals(1, ngram.get(Arrays.asList("b", "c")).count(MarkovChain.END_TOKEN));
+
+        // a later sentence that starts with b records after [b]
+        ngram.addSequence(Arrays.asList("b", "d").iterator());
+        assertEquals(1, ngram.get(Collections.singletonList("b")).count("d"));
+        assertEquals(
+                Arrays.asList("a", "b", "c"),
+                drain(ngram.getWalk(new ListNumberGenerator(new int[] { 0 })))
+        );
+    }
+
+    @Test
+    public void testEmptyChain() {
+        NGramMarkovChain ngram = new NGramMarkovChain(4);
+        ngram.addSequence(Collections.<String>emptyList().iterator());
+        assertFalse(ngram.getRandomWalk().hasNext());
+        assertEquals(1, ngram.contextCount());
+    }
+}
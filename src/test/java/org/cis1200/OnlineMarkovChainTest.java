@@ -0,0 +1,104 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.cis1200.Walks.drain;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for OnlineMarkovChain */
+public class OnlineMarkovChainTest {
+
+    @Test
+    public void testInvalidCadence() {
+        assertThrows(IllegalArgumentException.class, () -> new OnlineMarkovChain(0));
+    }
+
+    @Test
+    public void testPublishCadence() {
+        OnlineMarkovChain omc = new OnlineMarkovChain(2);
+        assertFalse(omc.getRandomWalk().hasNext());
+
+        omc.addSequence(Arrays.asList("CIS", "1200").iterator());
+        assertEquals(1, omc.pendingSequences());
+        assertFalse(omc.getRandomWalk().hasNext());
+
+        omc.addSequence(Arrays.asList("CIS", "1600").iterator());
+        assertEquals(0, omc.pendingSequences());
+        assertEquals(
+                Arrays.asList("CIS", "1200"),
+                drain(omc.getWalk(new ListNumberGenerator(new int[] { 0, 0 })))
+        );
+
+        omc.addSequence(Collections.singletonList("rocks").iterator());
+        assertEquals(4, omc.snapshot().tokenCount());
+        omc.publish();
+        assertEquals(0, omc.pendingSequences());
+        assertEquals(5, omc.snapshot().tokenCount());
+    }
+
+    @Test
+    public void testInvalidSentences() {
+        OnlineMarkovChain omc = new OnlineMarkovChain(1);
+        assertThrows(IllegalArgumentException.class, () -> omc.addSequence(null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> omc.addSequence(Arrays.asList("a", null).iterator())
+        );
+        assertEquals(0, omc.pendingSequences());
+        assertEquals(1, omc.snapshot().tokenCount());
+    }
+
+    @Test
+    public void testWalkKeepsItsSnapshot() {
+        OnlineMarkovChain omc = new OnlineMarkovChain(1);
+        omc.addSequence(Arrays.asList("a", "b").iterator());
+        Iterator<String> walk = omc.getWalk(new ListNumberGenerator(new int[] { 0, 0, 1 }));
+        assertEquals("a", walk.next());
+        omc.addSequence(Arrays.asList("a", "c").iterator());
+        assertEquals("b", walk.next());
+        assertFalse(walk.hasNext());
+    }
+
+    @Test
+    public void testConcurrentTrainingAndWalks() throws InterruptedException {
+        OnlineMarkovChain omc = new OnlineMarkovChain(10);
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // every sentence is "tweet <n>", so every walk must be as well
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                omc.addSequence(Arrays.asList("tweet", String.valueOf(i)).iterator());
+            }
+            done.set(true);
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        List<String> walk = drain(omc.getRandomWalk());
+                        if (!walk.isEmpty()) {
+                            assertEquals(2, walk.size());
+                            assertEquals("tweet", walk.get(0));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }));
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertEquals(2002, omc.snapshot().tokenCount());
+    }
+}
@@ -0,0 +1,135 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for ProbabilityDistribution */
+public class ProbabilityDistributionTest {
+
+    /**
+     * Checks every pick and index of pd against the counts in expected, picked
+     * in the sorted order of a TreeMap.
+     */
+    private static void assertSortedPicks(
+            TreeMap<String, Integer> expected, ProbabilityDistribution<String> pd
+    ) {
+        int index = 0;
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assertEquals(index, pd.index(e.getKey()));
+            for (int i = 0; i < e.getValue(); i++) {
+                assertEquals(e.getKey(), pd.pick(index++));
+            }
+        }
+        assertEquals(index, pd.getTotal());
+        assertEquals(expected, pd.getRecords());
+    }
+
+    @Test
+    public void testPicksInSortedOrderWhileRecording() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        Random random = new Random(1200);
+        for (int i = 0; i < 500; i++) {
+            String word = "w" + random.nextInt(40);
+            int count = 1 + random.nextInt(3);
+            pd.record(word, count);
+            expected.merge(word, count, Integer::sum);
+            if (i % 50 == 0) {
+                assertSortedPicks(expected, pd);
+            }
+        }
+        assertSortedPicks(expected, pd);
+    }
+
+    @Test
+    public void testSubtractAndMergeKeepOrder() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        pd.record("b", 2);
+        pd.record("a");
+        pd.record("c", 3);
+        assertEquals("a", pd.pick(0));
+
+        ProbabilityDistribution<String> removed = new ProbabilityDistribution<>();
+        removed.record("a");
+        removed.record("c");
+        pd.subtract(removed);
+        TreeMap<String, Integer> expected = new TreeMap<>(Map.of("b", 2, "c", 2));
+        assertSortedPicks(expected, pd);
+        assertThrows(IllegalArgumentException.class, () -> pd.index("a"));
+
+        ProbabilityDistribution<String> added = new ProbabilityDistribution<>();
+        added.record("0");
+        added.record("b");
+        pd.merge(added, s -> s);
+        expected.put("0", 1);
+        expected.put("b", 3);
+        assertSortedPicks(expected, pd);
+        assertEquals("Frequency of 0: 1Frequency of b: 3Frequency of c: 2", pd.toString());
+    }
+
+    @Test
+    public void testKeySetIsSortedView() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        pd.record("c");
+        pd.record("a", 2);
+        Set<String> keys = pd.keySet();
+        assertEquals(List.of("a", "c"), new ArrayList<>(keys));
+        pd.record("b");
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(keys));
+        assertEquals(3, keys.size());
+        assertTrue(keys.contains("b"));
+        assertFalse(keys.contains("d"));
+        assertThrows(UnsupportedOperationException.class, () -> keys.remove("a"));
+    }
+
+    @Test
+    public void testSealedDistributionIsReadConcurrently() throws InterruptedException {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        for (int i = 0; i < 500; i++) {
+            pd.record("w" + (499 - i), i % 7 + 1);
+        }
+        pd.seal();
+        String[] expected = new String[pd.getTotal()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = pd.pick(i);
+        }
+        List<Thread> readers = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int r = 0; r < 4; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < expected.length; i++) {
+                        assertEquals(expected[i], pd.pick(i));
+                        assertTrue(pd.index(expected[i]) <= i);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(failures.isEmpty(), failures::toString);
+
+        // recording after sealing is picked up by the next read
+        pd.record("x");
+        pd.record("w0", 3);
+        assertEquals("x", pd.pick(pd.getTotal() - 1));
+        assertEquals("w0", pd.pick(3));
+        assertEquals(6, pd.index("w1"));
+    }
+
+    @Test
+    public void testInvalidRecords() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        assertThrows(IllegalArgumentException.class, () -> pd.record(null));
+        assertThrows(IllegalArgumentException.class, () -> pd.record("a", 0));
+        assertThrows(IllegalArgumentException.class, () -> pd.pick(0));
+        assertEquals(0, pd.getTotal());
+    }
+}
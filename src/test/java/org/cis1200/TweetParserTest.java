@@ -2,12 +2,24 @@ package org.cis1200;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.BufferedReader;
+import java.io.FilterReader;
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /** Tests for TweetParser */
 public class TweetParserTest {
@@ -81,6 +93,20 @@ public class TweetParserTest {
         assertEquals(expected, tweets);
     }
 
+    @Test
+    public void testCsvDataToTweetsQuotedCommas() {
+        StringReader sr = new StringReader(
+                "0,\"Hello, world\",x\n" +
+                        "1,\"Two\nlines\"\n" +
+                        "2\n"
+        );
+        List<String> tweets = TweetParser.csvDataToTweets(new BufferedReader(sr), 1);
+        List<String> expected = new LinkedList<String>();
+        expected.add("Hello, world");
+        expected.add("Two\nlines");
+        assertEquals(expected, tweets);
+    }
+
     /* **** ****** ***** ** PARSE AND CLEAN SENTENCE ** ***** ****** ***** */
 
     /* Here's an example test case. Be sure to add your own as well */
@@ -121,4 +147,149 @@ public class TweetParserTest {
         assertEquals(expected, tweets);
     }
 
+    @Test
+    public void testCsvDataToTweetsClosesReader() throws IOException {
+        BufferedReader br = new BufferedReader(new StringReader("0, a\n1, b"));
+        assertEquals(listOfArray(new String[] { " a", " b" }), TweetParser.csvDataToTweets(br, 1));
+        assertThrows(IOException.class, br::read);
+
+        BufferedReader unread = new BufferedReader(new StringReader("0, a"));
+        assertTrue(TweetParser.csvDataToTweets(unread, -1).isEmpty());
+        assertThrows(IOException.class, unread::read);
+
+        BufferedReader noSentences = new BufferedReader(new StringReader("0, a"));
+        assertFalse(TweetParser.csvDataToSentences(noSentences, -1).hasNext());
+        assertThrows(IOException.class, noSentences::read);
+    }
+
+    /* **** ****** ***** ** CSV DATA TO SENTENCES ** ***** ****** **** */
+
+    @Test
+    public void testCsvDataToSentencesSimpleCSV() {
+        StringReader sr = new StringReader(
+                "0, The end. Should come here.\n" +
+                        "1\n" +
+                        "2, http://x.y\n" +
+                        "3, This comes from data!"
+        );
+        Iterator<List<String>> sentences = TweetParser
+                .csvDataToSentences(new BufferedReader(sr), 1);
+        List<List<String>> expected = new LinkedList<List<String>>();
+        expected.add(listOfArray("the end".split(" ")));
+        expected.add(listOfArray("should come here".split(" ")));
+        expected.add(listOfArray("this comes from data".split(" ")));
+        List<List<String>> actual = new LinkedList<List<String>>();
+        sentences.forEachRemaining(actual::add);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCsvDataToSentencesMatchesTrainingData() {
+        String file = "files/dog_feelings_tweets.csv";
+        List<List<String>> expected = TweetParser
+                .csvDataToTrainingData(FileUtilities.fileToReader(file), 2);
+        List<List<String>> actual = new ArrayList<>();
+        TweetParser.csvDataToSentences(FileUtilities.fileToReader(file), 2)
+                .forEachRemaining(actual::add);
+        assertEquals(expected, actual);
+    }
+
+    /* **** ****** ***** ** CSV DATA TO STREAMS ** ***** ****** **** */
+
+    @Test
+    public void testTrainingDataStreamMatchesTrainingData() {
+        String file = "files/noaa_tweets.csv";
+        List<List<String>> expected = TweetParser
+                .csvDataToTrainingData(FileUtilities.fileToReader(file), 2);
+        try (Stream<List<String>> sentences = TweetParser
+                .csvDataToTrainingDataStream(FileUtilities.fileToReader(file), 2)) {
+            assertEquals(expected, sentences.collect(Collectors.toList()));
+        }
+        try (Stream<List<String>> sentences = TweetParser
+                .csvDataToTrainingDataStream(FileUtilities.fileToReader(file), 2).parallel()) {
+            assertEquals(expected, sentences.collect(Collectors.toList()));
+        }
+        assertEquals(
+                TweetParser.csvDataToTweets(FileUtilities.fileToReader(file), 2),
+                TweetParser.csvDataToTweetStream(FileUtilities.fileToReader(file), 2)
+                        .collect(Collectors.toList())
+        );
+        assertEquals(
+                0, TweetParser.csvDataToTrainingDataStream(
+                        FileUtilities.fileToReader(file), -1
+                ).count()
+        );
+    }
+
+    @Test
+    public void testClosingStreamsClosesReader() {
+        BufferedReader tweets = new BufferedReader(new StringReader("0, a"));
+        try (Stream<String> stream = TweetParser.csvDataToTweetStream(tweets, -1)) {
+            assertEquals(0, stream.count());
+        }
+        assertThrows(IOException.class, tweets::read);
+
+        BufferedReader sentences = new BufferedReader(new StringReader("0, a"));
+        try (Stream<List<String>> stream = TweetParser
+                .csvDataToTrainingDataStream(sentences, -1)) {
+            assertEquals(0, stream.count());
+        }
+        assertThrows(IOException.class, sentences::read);
+
+        BufferedReader unfinished = new BufferedReader(new StringReader("0, a\n1, b"));
+        try (Stream<String> stream = TweetParser.csvDataToTweetStream(unfinished, 1)) {
+            assertEquals(" a", stream.findFirst().orElse(null));
+        }
+        assertThrows(IOException.class, unfinished::read);
+    }
+
+    @Test
+    public void testTrainingDataStreamIsLazy() {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            csv.append(i).append(", Tweet number ").append(i).append(".\n");
+        }
+        int[] charsRead = new int[1];
+        BufferedReader br = new BufferedReader(new FilterReader(new StringReader(csv.toString())) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                int n = super.read(cbuf, off, len);
+                charsRead[0] += Math.max(n, 0);
+                return n;
+            }
+        });
+        try (Stream<List<String>> sentences = TweetParser.csvDataToTrainingDataStream(br, 1)) {
+            assertEquals(
+                    listOfArray("tweet number 2".split(" ")),
+                    sentences.skip(2).findFirst().orElse(null)
+            );
+        }
+        assertTrue(charsRead[0] < csv.length() / 10);
+        assertThrows(IOException.class, br::read);
+    }
+
+    @Test
+    public void testSentenceSpliteratorSplitsInOrder() {
+        Spliterator<List<String>> sentences = new TweetParser.SentenceSpliterator(
+                Arrays.asList("a. b. c", "d", "e. f").iterator()
+        );
+        List<List<String>> suffix = new ArrayList<>();
+        assertTrue(sentences.tryAdvance(suffix::add));
+        // the split takes the rest of the first tweet and the following tweets
+        Spliterator<List<String>> prefix = sentences.trySplit();
+        assertNotNull(prefix);
+        // two tweets and two sentences
+        assertEquals(4, prefix.estimateSize());
+        List<List<String>> rest = new ArrayList<>();
+        prefix.forEachRemaining(rest::add);
+        sentences.forEachRemaining(rest::add);
+        assertEquals(
+                Arrays.asList(
+                        singleton("b"), singleton("c"), singleton("d"), singleton("e"),
+                        singleton("f")
+                ),
+                rest
+        );
+        assertNull(sentences.trySplit());
+    }
 }
@@ -0,0 +1,124 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for TweetTokenizer */
+public class TweetTokenizerTest {
+
+    private static final Vocabulary VOCABULARY = new Vocabulary();
+    private static final TweetTokenizer ID_TOKENIZER = new TweetTokenizer(VOCABULARY);
+
+    /**
+     * @return the sentences found by ID_TOKENIZER, turned back into words
+     */
+    private static List<List<String>> tokenizeIds(String tweet) {
+        List<List<String>> sentences = new ArrayList<>();
+        int count = ID_TOKENIZER.tokenizeIds(tweet);
+        for (int i = 0; i < count; i++) {
+            List<String> sentence = new ArrayList<>();
+            for (int k = ID_TOKENIZER.sentenceStart(i); k < ID_TOKENIZER.sentenceEnd(i); k++) {
+                sentence.add(VOCABULARY.word(ID_TOKENIZER.getIds()[k]));
+            }
+            sentences.add(sentence);
+        }
+        return sentences;
+    }
+
+    private static void assertSameAsRegex(String tweet) {
+        List<List<String>> expected = TweetParser.parseAndCleanTweet(tweet);
+        assertEquals(expected, TweetTokenizer.tokenize(tweet), () -> "tokenizing " + tweet);
+        assertEquals(expected, tokenizeIds(tweet), () -> "tokenizing IDs of " + tweet);
+    }
+
+    @Test
+    public void testSimpleTweets() {
+        assertEquals(
+                Arrays.asList(Arrays.asList("abc"), Arrays.asList("def")),
+                TweetTokenizer.tokenize("abc http://www.cis.upenn.edu. def.")
+        );
+        assertEquals(
+                Arrays.asList(Arrays.asList("don't", "panic"), Arrays.asList("ok")),
+                TweetTokenizer.tokenize("  Don't   PANIC!?  ok; bad-word")
+        );
+        assertTrue(TweetTokenizer.tokenize("").isEmpty());
+        assertTrue(TweetTokenizer.tokenize("http://a.b ...").isEmpty());
+    }
+
+    @Test
+    public void testTokenizeIds() {
+        Vocabulary v = new Vocabulary();
+        TweetTokenizer tokenizer = new TweetTokenizer(v);
+        assertEquals(2, tokenizer.tokenizeIds("The CAT sat. The cat ran http://x.y"));
+        assertEquals(3, tokenizer.sentenceEnd(0));
+        assertArrayEquals(
+                new int[] { 0, 1, 2, 0, 1, 3 }, Arrays.copyOf(tokenizer.getIds(), 6)
+        );
+        assertEquals(4, v.size());
+        assertEquals(0, tokenizer.tokenizeIds("#! ?"));
+        assertEquals(1, tokenizer.tokenizeIds(new StringBuilder("cat http://x SAT")));
+        assertArrayEquals(new int[] { 1, 2 }, Arrays.copyOf(tokenizer.getIds(), 2));
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            many.append("İ word").append(i).append(". ");
+        }
+        // İ lowercases to i and a combining dot, so it is a bad word
+        assertEquals(100, tokenizer.tokenizeIds(many.toString()));
+        assertEquals(99, tokenizer.sentenceStart(99));
+        assertEquals("word99", v.word(tokenizer.getIds()[tokenizer.sentenceEnd(99) - 1]));
+        assertThrows(IllegalArgumentException.class, () -> new TweetTokenizer((Vocabulary) null));
+    }
+
+    @Test
+    public void testEdgeCasesMatchRegex() {
+        String[] tweets = {
+            "abc http://www.cis.upenn.edu", "abc http://www.cis.upenn.edu.",
+            "http:// abc http:ala34?#?", "a.http://x. b", "xhttp://x y", "_http y",
+            "éhttp://x y", "éhttp://x y", "-́http://x y", "HTTP://x y",
+            "http://a.\tb", "http://a. ", "a\tb c", "a b c", "a  b c",
+            "a\r\nb", "K elvin", "İstanbul", "café ok", "😀 ok",
+            "one. two? three! four; five", "http", "httphttp http.http", "..;;!!??"
+        };
+        for (String tweet : tweets) {
+            assertSameAsRegex(tweet);
+        }
+    }
+
+    @Test
+    public void testRandomTweetsMatchRegex() {
+        String alphabet = "abHh tp:/._'!?;-\t\r\né́ K0";
+        Random random = new Random(1200);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder tweet = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int j = 0; j < length; j++) {
+                if (random.nextInt(8) == 0) {
+                    tweet.append("http");
+                } else {
+                    tweet.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+            assertSameAsRegex(tweet.toString());
+        }
+    }
+
+    @Test
+    public void testBundledFilesMatchRegex() {
+        File[] files = new File("files").listFiles((dir, name) -> name.endsWith(".csv"));
+        assertNotNull(files);
+        for (File file : files) {
+            LineIterator lines = new LineIterator(FileUtilities.fileToReader(file.getPath()));
+            while (lines.hasNext()) {
+                String line = lines.next();
+                assertSameAsRegex(line);
+                for (String column : line.split(",")) {
+                    assertSameAsRegex(column);
+                }
+            }
+        }
+    }
+}
@@ -132,4 +132,31 @@ public class TwitterBotTest {
                 "The bot should correctly generate tweets for long sequences."
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStreamingTrainingMatchesList() {
+        TwitterBot fromList = new TwitterBot(getTestTrainingDataExample());
+        TwitterBot fromIterator = new TwitterBot(getTestTrainingDataExample().iterator());
+        int[] walk = { 0, 0, 1, 0 };
+        assertEquals(
+                fromList.generateTweet(new ListNumberGenerator(walk)),
+                fromIterator.generateTweet(new ListNumberGenerator(walk))
+        );
+    }
+
+    @Test
+    public void testBoundedLengthTweets() {
+        TwitterBot tb = new TwitterBot(
+                TweetParser.csvDataToTrainingData(
+                        FileUtilities.fileToReader("files/dog_feelings_tweets.csv"), 2
+                )
+        );
+        for (int maxLength : new int[] { 280, 60, 20 }) {
+            for (long seed = 0; seed < 200; seed++) {
+                String tweet = tb.generateTweet(new RandomNumberGenerator(seed), maxLength);
+                assertTrue(tweet.length() <= maxLength, tweet);
+            }
+        }
+        assertEquals("", tb.generateTweet(new RandomNumberGenerator(1200), 0));
+    }
+}
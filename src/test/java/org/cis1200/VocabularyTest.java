@@ -0,0 +1,92 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for Vocabulary */
+public class VocabularyTest {
+
+    @Test
+    public void testInternAssignsDenseIds() {
+        Vocabulary v = new Vocabulary();
+        assertEquals(0, v.intern("cis"));
+        assertEquals(1, v.intern("1200"));
+        assertEquals(0, v.intern("cis"));
+        assertEquals(2, v.size());
+        assertEquals("1200", v.word(1));
+        assertEquals(1, v.id("1200"));
+        assertEquals(-1, v.id("rocks"));
+        assertEquals(-1, v.id(null));
+        assertEquals(2, v.size());
+    }
+
+    @Test
+    public void testInternNull() {
+        Vocabulary v = new Vocabulary();
+        assertThrows(IllegalArgumentException.class, () -> v.intern(null));
+        assertThrows(IllegalArgumentException.class, () -> v.word(0));
+    }
+
+    @Test
+    public void testManyWordsSurviveGrowth() {
+        Vocabulary v = new Vocabulary();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, v.intern("w" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, v.id("w" + i));
+            assertEquals("w" + i, v.word(i));
+        }
+    }
+
+    @Test
+    public void testSortedIds() {
+        Vocabulary v = new Vocabulary();
+        v.intern("table");
+        v.intern("a");
+        v.intern("chair");
+        assertArrayEquals(new int[] { 1, 2, 0 }, v.sortedIds());
+        assertTrue(v.compare(1, 0) < 0);
+    }
+
+    @Test
+    public void testChainsShareVocabulary() {
+        Vocabulary v = new Vocabulary();
+        MarkovChain mc1 = new MarkovChain(v);
+        MarkovChain mc2 = new MarkovChain(v);
+        mc1.addSequence(Arrays.asList("a", "b").iterator());
+        mc2.addSequence(Arrays.asList("b", "a").iterator());
+        assertEquals(3, v.size());
+        assertEquals(1, mc1.get("a").count("b"));
+        assertEquals(1, mc2.get("b").count("a"));
+        assertNull(mc2.get("a").getRecords().get("b"));
+    }
+
+    @Test
+    public void testInternCharSpan() {
+        Vocabulary v = new Vocabulary();
+        String cis = "cis";
+        assertEquals(0, v.intern(cis));
+        char[] chars = "xcis1200cis".toCharArray();
+        assertEquals(0, v.intern(chars, 1, 4));
+        assertEquals(0, v.intern(chars, 8, 11));
+        // known words are not copied
+        assertSame(cis, v.word(v.intern(chars, 8, 11)));
+        assertEquals(1, v.intern(chars, 4, 8));
+        assertEquals(1, v.id("1200"));
+        assertEquals(2, v.intern(chars, 0, 0));
+        assertEquals(2, v.id(""));
+        assertThrows(IndexOutOfBoundsException.class, () -> v.intern(chars, 5, 12));
+        assertThrows(IndexOutOfBoundsException.class, () -> v.intern(chars, 5, 4));
+
+        for (int i = 0; i < 1000; i++) {
+            char[] word = ("w" + i).toCharArray();
+            assertEquals(3 + i, v.intern(word, 0, word.length));
+        }
+        assertEquals(1003, v.size());
+        assertEquals(503, v.id("w500"));
+    }
+}
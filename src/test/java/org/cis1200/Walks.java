@@ -0,0 +1,22 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/** Helpers shared by the tests of the chains that produce walks */
+final class Walks {
+
+    private Walks() {
+    }
+
+    /**
+     * @param walk - the walk to consume
+     * @return every token that the walk yields, in order
+     */
+    static List<String> drain(Iterator<String> walk) {
+        List<String> tokens = new ArrayList<>();
+        walk.forEachRemaining(tokens::add);
+        return tokens;
+    }
+}
@@ -0,0 +1,100 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.cis1200.Walks.drain;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for WindowedMarkovChain */
+public class WindowedMarkovChainTest {
+
+    private static void add(WindowedMarkovChain wmc, String sentence) {
+        wmc.addSequence(Arrays.asList(sentence.split(" ")).iterator());
+    }
+
+    @Test
+    public void testInvalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new WindowedMarkovChain(0));
+    }
+
+    @Test
+    public void testInvalidSentenceIsNotCounted() {
+        WindowedMarkovChain wmc = new WindowedMarkovChain(1);
+        assertThrows(IllegalArgumentException.class, () -> wmc.addSequence(null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> wmc.addSequence(Arrays.asList("a", "b", null).iterator())
+        );
+        assertNull(wmc.getChain().get("a"));
+        add(wmc, "c d");
+        // forgetting the bucket only subtracts what was counted in the model
+        wmc.advance();
+        assertNull(wmc.getChain().get("a"));
+        assertNull(wmc.getChain().get("c"));
+        assertFalse(wmc.getRandomWalk().hasNext());
+    }
+
+    @Test
+    public void testOldBucketsAreForgotten() {
+        WindowedMarkovChain wmc = new WindowedMarkovChain(2);
+        add(wmc, "a b");
+        wmc.advance();
+        add(wmc, "a c");
+        assertEquals(2, wmc.bucketCount());
+        assertEquals(1, wmc.getChain().get("a").count("b"));
+        assertEquals(2, wmc.getChain().startTokens.count("a"));
+
+        wmc.advance();
+        assertEquals(2, wmc.bucketCount());
+        MarkovChain mc = wmc.getChain();
+        assertEquals(0, mc.get("a").count("b"));
+        assertEquals(1, mc.get("a").count("c"));
+        assertFalse(mc.bigramFrequencies.containsKey("b"));
+        assertEquals(1, mc.startTokens.count("a"));
+
+        wmc.advance();
+        assertTrue(wmc.getChain().bigramFrequencies.isEmpty());
+        assertEquals(0, wmc.getChain().startTokens.getTotal());
+        assertFalse(wmc.getRandomWalk().hasNext());
+    }
+
+    @Test
+    public void testMatchesChainOfWindow() {
+        String[] words = { "the", "dog", "cat", "sat", "ran", "on", "a", "mat", "!" };
+        Random random = new Random(1200);
+        WindowedMarkovChain wmc = new WindowedMarkovChain(3);
+        List<List<List<String>>> history = new ArrayList<>();
+        for (int bucket = 0; bucket < 20; bucket++) {
+            List<List<String>> sentences = new ArrayList<>();
+            for (int s = 0; s < 5; s++) {
+                List<String> sentence = new ArrayList<>();
+                int length = 1 + random.nextInt(6);
+                for (int w = 0; w < length; w++) {
+                    // later buckets use more of the words
+                    sentence.add(words[random.nextInt(Math.min(words.length, 2 + bucket / 2))]);
+                }
+                sentences.add(sentence);
+            }
+            if (bucket > 0) {
+                wmc.advance();
+            }
+            wmc.train(sentences.iterator());
+            history.add(sentences);
+
+            List<List<String>> window = new ArrayList<>();
+            for (List<List<String>> b : history.subList(Math.max(0, bucket - 2), bucket + 1)) {
+                window.addAll(b);
+            }
+            MarkovChain expected = new MarkovChain(window);
+            assertEquals(expected.toString(), wmc.getChain().toString());
+            for (long seed = 0; seed < 10; seed++) {
+                assertEquals(
+                        drain(expected.getWalk(new RandomNumberGenerator(seed))),
+                        drain(wmc.getWalk(new RandomNumberGenerator(seed)))
+                );
+            }
+        }
+    }
+}